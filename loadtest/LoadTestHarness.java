@@ -0,0 +1,144 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Closed-loop load generator for /shifts/getAll and /auth/login.
+ * Runs with the JDK alone: java loadtest/LoadTestHarness.java --base-url http://localhost:8080 --label platform
+ */
+public class LoadTestHarness {
+
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String baseUrl = options.getOrDefault("base-url", "http://localhost:8080");
+        String label = options.getOrDefault("label", "run");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "200"));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("seconds", "30")));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-seconds", "10")));
+        int seedShifts = Integer.parseInt(options.getOrDefault("seed-shifts", "500"));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        String email = "loadtest-" + label + "@example.com";
+        String password = "loadtest-password";
+        String token = registerOrLogin(client, baseUrl, email, password);
+        seed(client, baseUrl, token, seedShifts);
+
+        HttpRequest getAll = HttpRequest.newBuilder(URI.create(baseUrl + "/shifts/getAll"))
+                .header("Authorization", "Bearer " + token).GET().build();
+        HttpRequest login = HttpRequest.newBuilder(URI.create(baseUrl + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(credentials(email, password))).build();
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-10s %-16s %6s %10s %9s %9s %9s %9s %8s", "label", "endpoint", "conc", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "errors"));
+        for (var scenario : List.of(Map.entry("/shifts/getAll", getAll), Map.entry("/auth/login", login))) {
+            run(client, scenario.getValue(), concurrency, warmup);
+            Result result = run(client, scenario.getValue(), concurrency, duration);
+            report.add(String.format("%-10s %-16s %6d %10.1f %9.2f %9.2f %9.2f %9.2f %8d", label, scenario.getKey(), concurrency,
+                    result.throughput(), result.percentile(0.50), result.percentile(0.95), result.percentile(0.99), result.percentile(1.0), result.errors()));
+        }
+        report.forEach(System.out::println);
+    }
+
+    private static Result run(HttpClient client, HttpRequest request, int concurrency, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        List<long[]> perWorker = new ArrayList<>();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(concurrency);
+
+        for (int i = 0; i < concurrency; i++) {
+            Thread worker = new Thread(() -> {
+                long[] samples = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 300) errors.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    if (count == samples.length) samples = Arrays.copyOf(samples, count * 2);
+                    samples[count++] = System.nanoTime() - start;
+                }
+                long[] measured = Arrays.copyOf(samples, count);
+                synchronized (perWorker) {
+                    perWorker.add(measured);
+                }
+                done.countDown();
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+
+        long[] all = perWorker.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        return new Result(all, all.length / (double) duration.toSeconds(), errors.get());
+    }
+
+    private static String registerOrLogin(HttpClient client, String baseUrl, String email, String password) throws Exception {
+        String register = "{\"name\":\"Load Test\",\"email\":\"" + email + "\",\"password\":\"" + password
+                + "\",\"professionalType\":1,\"professionalRegister\":\"0000\",\"state\":\"SP\",\"city\":\"Sao Paulo\"}";
+        HttpResponse<String> response = post(client, baseUrl + "/auth/register", register, null);
+        if (response.statusCode() != 200) response = post(client, baseUrl + "/auth/login", credentials(email, password), null);
+        Matcher matcher = TOKEN.matcher(response.body());
+        if (!matcher.find()) throw new IllegalStateException("Could not authenticate: " + response.statusCode() + " " + response.body());
+        return matcher.group(1);
+    }
+
+    private static void seed(HttpClient client, String baseUrl, String token, int shifts) throws Exception {
+        StringBuilder body = new StringBuilder("{\"create\":[");
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 7, 0);
+        for (int i = 0; i < shifts; i++) {
+            if (i > 0) body.append(',');
+            LocalDateTime shiftStart = start.plusDays(i);
+            body.append("{\"startTime\":\"").append(shiftStart).append("\",\"endTime\":\"").append(shiftStart.plusHours(12))
+                    .append("\",\"value\":1200.0,\"location\":\"Hospital ").append(i % 5).append("\"}");
+        }
+        body.append("]}");
+        // re-running against the same user only yields per-item conflicts, which is fine
+        post(client, baseUrl + "/shifts/batch", body.toString(), token);
+    }
+
+    private static HttpResponse<String> post(HttpClient client, String url, String json, String token) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+        if (token != null) builder.header("Authorization", "Bearer " + token);
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String credentials(String email, String password) {
+        return "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}";
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    private record Result(long[] sortedNanos, double throughput, long errors) {
+        double percentile(double p) {
+            if (sortedNanos.length == 0) return 0;
+            int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1);
+            return sortedNanos[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+#!/usr/bin/env bash
+# Compares platform-thread and virtual-thread request execution under the same client concurrency.
+#
+#   loadtest/compare-threading.sh [concurrency] [seconds]
+#
+# Needs a reachable Postgres (see application.properties) and a Java 21+ runtime in JAVA_HOME,
+# because spring.threads.virtual.enabled is ignored on older JVMs. Results and pinning traces
+# are written to target/loadtest/.
+set -euo pipefail
+
+CONCURRENCY=${1:-200}
+SECONDS_PER_RUN=${2:-30}
+PORT=${PORT:-18080}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+OUT=target/loadtest
+
+cd "$(dirname "$0")/.."
+mkdir -p "$OUT"
+./mvnw -q -DskipTests package
+JAR=$(ls target/login-auth-api-*.jar | grep -v original | head -1)
+
+run_mode() {
+  local label=$1; shift
+  local log="$OUT/server-$label.log"
+
+  # tracePinnedThreads=short prints the frames holding a monitor whenever a virtual thread blocks while pinned
+  # the login scenario is a deliberate flood from one address, so the /auth rate limiter is switched off here
+  "$JAVA" -Djdk.tracePinnedThreads=short -jar "$JAR" --server.port="$PORT" --api.security.rate-limit.enabled=false "$@" > "$log" 2>&1 &
+  local pid=$!
+
+  for _ in $(seq 1 60); do
+    curl -s -o /dev/null "http://localhost:$PORT/auth/login" -X POST -H 'Content-Type: application/json' -d '{}' && break
+    sleep 1
+  done
+
+  "$JAVA" loadtest/LoadTestHarness.java --base-url "http://localhost:$PORT" --label "$label" \
+    --concurrency "$CONCURRENCY" --seconds "$SECONDS_PER_RUN" | tee "$OUT/result-$label.txt"
+
+  kill "$pid"; wait "$pid" 2>/dev/null || true
+
+  echo "--- pinned virtual threads ($label): frames holding a monitor, by count ---"
+  grep "<== monitors" "$log" | sed 's/^[[:space:]]*//' | sort | uniq -c | sort -rn | head -20 > "$OUT/pinning-$label.txt" || true
+  if [ -s "$OUT/pinning-$label.txt" ]; then cat "$OUT/pinning-$label.txt"; else echo "none recorded" | tee "$OUT/pinning-$label.txt"; fi
+}
+
+run_mode platform
+run_mode virtual --spring.profiles.active=virtual-threads
+
+echo
+echo "=== summary ==="
+tail -n 3 "$OUT"/result-platform.txt
+tail -n 2 "$OUT"/result-virtual.txt
+echo
+echo "pinning hot spots (virtual): $OUT/pinning-virtual.txt"
+cat "$OUT"/pinning-virtual.txt
@@ -0,0 +1,104 @@
+#!/usr/bin/env bash
+# Measures startup as the time from launching the JVM to the first successful POST /auth/login, for
+#
+#   ddl-update  the previous setup: no flyway, hibernate ddl-auto=update introspecting the schema on every boot
+#   flyway      flyway-managed schema, hibernate only validates it
+#   aot         the same, with the application context initialized from the Spring AOT-generated code
+#   aot-cds     the same, plus a class-data-sharing archive recorded in a training run
+#
+#   loadtest/startup-report.sh [runs]
+#
+# Needs a reachable Postgres (see application.properties). Every variant runs from the same unpacked jar, since CDS
+# cannot archive classes nested in the fat jar. Logs and the report are written to target/startup/.
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-18080}
+JAVA=${JAVA_HOME:+$JAVA_HOME/bin/}java
+JAR_TOOL=${JAVA_HOME:+$JAVA_HOME/bin/}jar
+OUT=target/startup
+EMAIL=startup-report@example.com
+PASSWORD=startup-report-password
+MAIN=com.example.loginauthapi.LoginAuthApiApplication
+
+cd "$(dirname "$0")/.."
+rm -rf "$OUT" && mkdir -p "$OUT/app"
+# the AOT-generated classes are only used when -Dspring.aot.enabled=true is set, so one build serves every variant
+./mvnw -q -Paot -DskipTests package
+JAR=$(ls target/login-auth-api-*.jar | grep -v original | head -1)
+(cd "$OUT/app" && "$JAR_TOOL" -xf "../../../$JAR")
+# CDS only takes jars on the class path, and the class path has to be identical between the training run and the
+# runs using the archive
+"$JAR_TOOL" -cf "$OUT/app/application.jar" -C "$OUT/app/BOOT-INF/classes" .
+CLASSPATH="$OUT/app/application.jar:$(ls "$OUT"/app/BOOT-INF/lib/*.jar | sort | paste -sd: -)"
+
+# the probe logs in many times in a row from one address, so the /auth rate limiter is switched off
+APP_ARGS=(--server.port="$PORT" --api.security.rate-limit.enabled=false)
+
+login_status() {
+  curl -s -o /dev/null -w '%{http_code}' "http://localhost:$PORT/auth/login" -X POST -H 'Content-Type: application/json' \
+    -d "{\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\"}" || true
+}
+
+now_ms() {
+  echo $(( $(date +%s%N) / 1000000 ))
+}
+
+# prints the milliseconds from launch to the first 200 from /auth/login
+measure() {
+  local log=$1; shift
+  local started_at pid
+  started_at=$(now_ms)
+  "$JAVA" "$@" -cp "$CLASSPATH" "$MAIN" "${APP_ARGS[@]}" > "$log" 2>&1 &
+  pid=$!
+  until [ "$(login_status)" = "200" ]; do
+    if ! kill -0 "$pid" 2>/dev/null; then echo "server exited, see $log" >&2; exit 1; fi
+    sleep 0.02
+  done
+  echo $(( $(now_ms) - started_at ))
+  kill "$pid"; wait "$pid" 2>/dev/null || true
+}
+
+# the account the probe logs in with; registering it twice is answered with a 400, which is fine
+"$JAVA" -cp "$CLASSPATH" "$MAIN" "${APP_ARGS[@]}" > "$OUT/seed.log" 2>&1 &
+seed_pid=$!
+until curl -s -o /dev/null "http://localhost:$PORT/actuator/health"; do sleep 0.5; done
+curl -s -o /dev/null "http://localhost:$PORT/auth/register" -X POST -H 'Content-Type: application/json' \
+  -d "{\"name\":\"Startup report\",\"email\":\"$EMAIL\",\"password\":\"$PASSWORD\",\"professionalType\":1}"
+kill "$seed_pid"; wait "$seed_pid" 2>/dev/null || true
+
+# training run: refreshes the context, records the loaded classes and exits
+"$JAVA" -XX:ArchiveClassesAtExit="$OUT/app.jsa" -Dspring.aot.enabled=true -Dspring.context.exit=onRefresh \
+  -cp "$CLASSPATH" "$MAIN" "${APP_ARGS[@]}" > "$OUT/cds-training.log" 2>&1
+
+run_variant() {
+  local label=$1; shift
+  for i in $(seq 1 "$RUNS"); do
+    measure "$OUT/$label-$i.log" "$@" >> "$OUT/$label.ms"
+  done
+}
+
+run_variant ddl-update -Dspring.flyway.enabled=false -Dspring.jpa.hibernate.ddl-auto=update
+run_variant flyway
+run_variant aot -Dspring.aot.enabled=true
+run_variant aot-cds -Dspring.aot.enabled=true -XX:SharedArchiveFile="$OUT/app.jsa"
+
+stats() {
+  sort -n "$1" | awk '{ v[NR] = $1 } END { m = NR % 2 ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2; printf "%d | %d | %d", m, v[1], v[NR] }'
+}
+
+# Spring's own "Started ... in X seconds", which stops before the first request is served
+spring_started() {
+  grep -ho 'Started LoginAuthApiApplication in [0-9.]*' "$OUT/$1"-*.log | awk '{ print $4 * 1000 }' > "$OUT/$1.started.ms"
+  sort -n "$OUT/$1.started.ms" | awk '{ v[NR] = $1 } END { printf "%d", NR % 2 ? v[(NR + 1) / 2] : (v[NR / 2] + v[NR / 2 + 1]) / 2 }'
+}
+
+{
+  echo "# Startup: launch to first successful /auth/login ($RUNS runs each, $("$JAVA" -version 2>&1 | head -1))"
+  echo
+  echo "| variant | median ms | min ms | max ms | spring 'Started in' median ms |"
+  echo "|---|---|---|---|---|"
+  for label in ddl-update flyway aot aot-cds; do
+    echo "| $label | $(stats "$OUT/$label.ms") | $(spring_started "$label") |"
+  done
+} | tee "$OUT/report.md"
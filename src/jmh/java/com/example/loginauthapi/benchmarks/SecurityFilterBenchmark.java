@@ -0,0 +1,62 @@
+package com.example.loginauthapi.benchmarks;
+
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.domain.user.UserCredentials;
+import com.example.loginauthapi.infra.security.SecurityFilter;
+import com.example.loginauthapi.infra.security.TokenService;
+import com.example.loginauthapi.services.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SecurityFilterBenchmark {
+
+    private SecurityFilter filter;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setup() {
+        TokenService tokenService = TokenServiceBenchmark.tokenService(10_000);
+        User user = TokenServiceBenchmark.user("bench@example.com");
+        UserCredentials credentials = UserCredentials.from(user);
+
+        // stands in for the database so only token handling and context setup are measured
+        UserService userService = new UserService() {
+            @Override
+            public Optional<UserCredentials> findByEmail(String email) {
+                return Optional.of(credentials);
+            }
+        };
+
+        filter = new SecurityFilter();
+        ReflectionTestUtils.setField(filter, "tokenService", tokenService);
+        ReflectionTestUtils.setField(filter, "userService", userService);
+
+        request = new MockHttpServletRequest("GET", "/shifts/getAll");
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + tokenService.generateToken(user.getEmail()));
+    }
+
+    @Benchmark
+    public Object authenticatedRequest() throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+}
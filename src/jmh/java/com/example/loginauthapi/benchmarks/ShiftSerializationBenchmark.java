@@ -0,0 +1,70 @@
+package com.example.loginauthapi.benchmarks;
+
+import com.example.loginauthapi.domain.shift.Shift;
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.dto.shift.ShiftResponseDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// run with -prof gc (the profile's default) to compare bytes allocated per op between entities and DTOs
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ShiftSerializationBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int size;
+
+    private ObjectMapper objectMapper;
+    private List<Shift> entities;
+    private List<ShiftResponseDTO> dtos;
+
+    @Setup
+    public void setup() {
+        // same date handling as the ObjectMapper Spring Boot configures
+        objectMapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        User user = TokenServiceBenchmark.user("bench@example.com");
+        entities = new ArrayList<>(size);
+        LocalDateTime start = LocalDateTime.of(2020, 1, 1, 7, 0);
+        for (int i = 0; i < size; i++) {
+            Shift shift = new Shift();
+            shift.setId(i + 1);
+            shift.setStartTime(start.plusDays(i));
+            shift.setEndTime(start.plusDays(i).plusHours(12));
+            shift.setValue(1200.0);
+            shift.setLocation("Hospital " + (i % 5));
+            shift.setUser(user);
+            entities.add(shift);
+        }
+        dtos = entities.stream().map(ShiftResponseDTO::from).toList();
+    }
+
+    @Benchmark
+    public byte[] serializeEntities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(entities);
+    }
+
+    @Benchmark
+    public byte[] serializeDtos() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(dtos);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.loginauthapi.benchmarks;
+
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.infra.security.TokenRevocationService;
+import com.example.loginauthapi.infra.security.TokenService;
+import com.example.loginauthapi.repositories.RevokedTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenServiceBenchmark {
+
+    // power of two so the index can wrap with a mask
+    private static final int DISTINCT_TOKENS = 4096;
+
+    private TokenService cachingService;
+    private TokenService verifyingService;
+    private User user;
+    private String token;
+    private String[] distinctTokens;
+    private TokenRevocationService revocations;
+    private String[] liveJtis;
+    private int next;
+
+    @Setup
+    public void setup() {
+        cachingService = tokenService(10_000);
+        // a one-entry cache fed distinct tokens misses every time, so this measures the full HMAC verification
+        verifyingService = tokenService(1);
+
+        user = user("bench@example.com");
+        token = cachingService.generateToken(user.getEmail());
+        distinctTokens = new String[DISTINCT_TOKENS];
+        for (int i = 0; i < DISTINCT_TOKENS; i++) {
+            distinctTokens[i] = cachingService.generateToken("bench-" + i + "@example.com");
+        }
+
+        // a realistic revocation list, probed with ids that are not on it, which is what almost every request does
+        revocations = revocationService();
+        Instant expiresAt = Instant.now().plus(Duration.ofHours(2));
+        for (int i = 0; i < 10_000; i++) revocations.revoke(UUID.randomUUID().toString(), expiresAt);
+        liveJtis = new String[DISTINCT_TOKENS];
+        for (int i = 0; i < DISTINCT_TOKENS; i++) liveJtis[i] = UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cachingService.generateToken(user.getEmail());
+    }
+
+    @Benchmark
+    public String validateTokenCached() {
+        return cachingService.validateToken(token);
+    }
+
+    @Benchmark
+    public String validateTokenVerified() {
+        next = (next + 1) & (DISTINCT_TOKENS - 1);
+        return verifyingService.validateToken(distinctTokens[next]);
+    }
+
+    @Benchmark
+    public boolean revocationCheck() {
+        next = (next + 1) & (DISTINCT_TOKENS - 1);
+        return revocations.isRevoked(liveJtis[next]);
+    }
+
+    static TokenService tokenService(int cacheMaxSize) {
+        TokenService service = new TokenService();
+        ReflectionTestUtils.setField(service, "secret", "benchmark-secret");
+        ReflectionTestUtils.setField(service, "cacheMaxSize", cacheMaxSize);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "revocationService", revocationService());
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    static TokenRevocationService revocationService() {
+        TokenRevocationService service = new TokenRevocationService();
+        ReflectionTestUtils.setField(service, "revokedTokenRepository", Mockito.mock(RevokedTokenRepository.class));
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "expectedSize", 100_000);
+        ReflectionTestUtils.setField(service, "falsePositiveRate", 0.01);
+        ReflectionTestUtils.setField(service, "refreshInterval", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(service, "refreshOverlap", Duration.ofMinutes(1));
+        ReflectionTestUtils.invokeMethod(service, "init");
+        return service;
+    }
+
+    static User user(String email) {
+        User user = new User();
+        user.setId(email);
+        user.setEmail(email);
+        user.setName("Benchmark");
+        return user;
+    }
+}
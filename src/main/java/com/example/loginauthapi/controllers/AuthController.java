@@ -1,66 +1,160 @@
 package com.example.loginauthapi.controllers;
 
 import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.domain.user.UserCredentials;
 import com.example.loginauthapi.dto.auth.AuthLoginRequestDTO;
 import com.example.loginauthapi.dto.auth.AuthRegisterRequestDTO;
 import com.example.loginauthapi.dto.auth.ErrorResponseDTO;
+import com.example.loginauthapi.dto.auth.RefreshTokenRequestDTO;
 import com.example.loginauthapi.dto.auth.ResponseDTO;
+import com.example.loginauthapi.infra.metrics.ErrorMetrics;
+import com.example.loginauthapi.infra.security.PasswordHashingService;
 import com.example.loginauthapi.infra.security.TokenService;
-import com.example.loginauthapi.repositories.UserRepository;
+import com.example.loginauthapi.services.RefreshTokenService;
+import com.example.loginauthapi.services.UserService;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/auth")
 @RequiredArgsConstructor
 public class AuthController {
-    private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+    private static final String INVALID_CREDENTIALS = "Invalid email or password, please try again";
+    private static final String EMAIL_IN_USE = "Error while registering. Please verify if the email is already in use or contact the support team.";
+
+    private final UserService userService;
+    private final PasswordHashingService passwordHashingService;
     private final TokenService tokenService;
+    private final RefreshTokenService refreshTokenService;
+    private final AsyncTaskExecutor taskExecutor;
+    private final ErrorMetrics errorMetrics;
 
+    // hashing runs on its own bounded pool and the servlet thread is released while it waits;
+    // everything after the hash hops back to the task executor so the hashing threads only ever hash
     @PostMapping("/login")
-    public ResponseEntity login(@RequestBody AuthLoginRequestDTO body) {
+    public CompletableFuture<ResponseEntity> login(@RequestBody AuthLoginRequestDTO body) {
         try {
-            User user = this.userRepository.findByEmail(body.email()).orElseThrow(() -> new RuntimeException("Invalid email or password, please try again"));
-            if (passwordEncoder.matches(body.password(), user.getPassword())) {
-                String token = this.tokenService.generateToken(user);
-                return ResponseEntity.ok(new ResponseDTO(user.getName(), token, user.getEmail()));
+            Optional<UserCredentials> found = this.userService.findByEmail(body.email());
+            if (found.isEmpty()) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorResponseDTO(INVALID_CREDENTIALS)));
             }
-            throw new RuntimeException("Invalid email or password, please try again");
-        } catch (RuntimeException e) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorResponseDTO(e.getMessage()));
+            UserCredentials user = found.get();
+
+            return passwordHashingService.matches(body.password(), user.passwordHash())
+                    .<ResponseEntity>thenApplyAsync(matches -> {
+                        if (!matches) {
+                            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ErrorResponseDTO(INVALID_CREDENTIALS));
+                        }
+                        if (passwordHashingService.needsRehash(user.passwordHash())) {
+                            rehash(user, body.password());
+                        }
+                        String token = this.tokenService.generateToken(user.email());
+                        String refreshToken = this.refreshTokenService.issue(user.id());
+                        return ResponseEntity.ok(new ResponseDTO(user.name(), token, user.email(), refreshToken));
+                    }, taskExecutor)
+                    .exceptionally(e -> failure("/auth/login", e, "Error while trying to login. Please try again later."));
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponseDTO("Error while trying to login. Please try again later."));
+            return CompletableFuture.completedFuture(failure("/auth/login", e, "Error while trying to login. Please try again later."));
         }
     }
 
+    // the unique index on the normalized email is the only duplicate check, so concurrent sign-ups cannot both succeed
     @PostMapping("/register")
-    public ResponseEntity register(@RequestBody AuthRegisterRequestDTO body){
-        Optional<User> user = this.userRepository.findByEmail(body.email());
+    public CompletableFuture<ResponseEntity> register(@RequestBody AuthRegisterRequestDTO body){
+        if (body.email() == null || body.email().isBlank()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new ErrorResponseDTO(EMAIL_IN_USE)));
+        }
+
+        return passwordHashingService.encode(body.password())
+                .<ResponseEntity>thenApplyAsync(encodedPassword -> {
+                    User newUser = new User();
+                    newUser.setPassword(encodedPassword);
+                    newUser.setEmail(body.email().trim());
+                    newUser.setName(body.name());
+                    newUser.setProfessionalType(body.professionalType());
+                    newUser.setProfessionalRegister(body.professionalRegister());
+                    newUser.setState(body.state());
+                    newUser.setCity(body.city());
+                    try {
+                        this.userService.register(newUser);
+                    } catch (DataIntegrityViolationException e) {
+                        return ResponseEntity.badRequest().body(new ErrorResponseDTO(EMAIL_IN_USE));
+                    }
+
+                    String token = this.tokenService.generateToken(newUser.getEmail());
+                    String refreshToken = this.refreshTokenService.issue(newUser.getId());
+                    return ResponseEntity.ok(new ResponseDTO(newUser.getName(), token, newUser.getEmail(), refreshToken));
+                }, taskExecutor)
+                .exceptionally(e -> failure("/auth/register", e, "Error while registering. Please try again later."));
+    }
+
+    // a refresh is one indexed lookup and an hmac signature, so expired access tokens no longer cost a password hash
+    @PostMapping("/refresh")
+    public ResponseEntity refresh(@RequestBody RefreshTokenRequestDTO body) {
+        try {
+            RefreshTokenService.Rotation rotation = this.refreshTokenService.rotate(body.refreshToken());
+            User user = rotation.user();
+            String token = this.tokenService.generateToken(user.getEmail());
+            return ResponseEntity.ok(new ResponseDTO(user.getName(), token, user.getEmail(), rotation.refreshToken()));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(new ErrorResponseDTO("Session expired, please login again"));
+        } catch (Exception e) {
+            return failure("/auth/refresh", e, "Error while refreshing the session. Please try again later.");
+        }
+    }
 
-        if(user.isEmpty()) {
-            User newUser = new User();
-            newUser.setPassword(passwordEncoder.encode(body.password()));
-            newUser.setEmail(body.email());
-            newUser.setName(body.name());
-            newUser.setProfessionalType(body.professionalType());
-            newUser.setProfessionalRegister(body.professionalRegister());
-            newUser.setState(body.state());
-            newUser.setCity(body.city());
-            this.userRepository.save(newUser);
+    // ends the session on this device: the refresh token family and, when it is sent along, the access token
+    @PostMapping("/logout")
+    public ResponseEntity logout(@RequestBody RefreshTokenRequestDTO body,
+                                 @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        try {
+            this.refreshTokenService.revoke(body.refreshToken());
+            if (authorization != null && authorization.startsWith("Bearer ")) {
+                this.tokenService.revokeToken(authorization.substring("Bearer ".length()));
+            }
+            return ResponseEntity.noContent().build();
+        } catch (Exception e) {
+            return failure("/auth/logout", e, "Error while logging out. Please try again later.");
+        }
+    }
+
+    private void rehash(UserCredentials user, String rawPassword) {
+        passwordHashingService.encode(rawPassword)
+                .thenAcceptAsync(encodedPassword -> userService.updatePassword(user, encodedPassword), taskExecutor)
+                .exceptionally(e -> {
+                    log.warn("Could not rehash password for user {}", user.id(), e);
+                    return null;
+                });
+    }
 
-            String token = this.tokenService.generateToken(newUser);
-            return ResponseEntity.ok(new ResponseDTO(newUser.getName(), token, newUser.getEmail()));
+    private ResponseEntity failure(String uri, Throwable e, String message) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RejectedExecutionException) {
+            errorMetrics.record(uri, cause, HttpStatus.SERVICE_UNAVAILABLE);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(new ErrorResponseDTO("Too many authentication requests right now. Please try again shortly."));
         }
-        return ResponseEntity.badRequest().body(new ErrorResponseDTO("Error while registering. Please verify if the email is already in use or contact the support team."));
+        errorMetrics.record(uri, cause, HttpStatus.INTERNAL_SERVER_ERROR);
+        log.error("Authentication request failed", cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(new ErrorResponseDTO(message));
     }
 }
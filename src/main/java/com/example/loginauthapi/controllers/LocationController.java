@@ -0,0 +1,38 @@
+package com.example.loginauthapi.controllers;
+
+import com.example.loginauthapi.dto.location.LocationResponseDTO;
+import com.example.loginauthapi.dto.location.LocationStatsDTO;
+import com.example.loginauthapi.infra.security.AuthenticatedUser;
+import com.example.loginauthapi.services.LocationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/locations")
+@RequiredArgsConstructor
+public class LocationController {
+
+    @Autowired
+    LocationService locationService;
+
+    // autocomplete: the user's locations starting with the prefix, most recently used first
+    @GetMapping
+    public ResponseEntity<List<LocationResponseDTO>> suggest(@AuthenticationPrincipal AuthenticatedUser user,
+                                                             @RequestParam(required = false) String prefix,
+                                                             @RequestParam(defaultValue = "" + LocationService.DEFAULT_SUGGESTIONS) int limit) {
+        return ResponseEntity.ok(locationService.suggest(user.id(), prefix, limit));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<LocationStatsDTO>> stats(@AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(locationService.findStats(user.id()));
+    }
+}
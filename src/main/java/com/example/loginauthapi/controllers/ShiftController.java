@@ -1,23 +1,47 @@
 package com.example.loginauthapi.controllers;
 
-import com.example.loginauthapi.domain.shift.Shift;
+import com.example.loginauthapi.dto.shift.ShiftBatchItemResultDTO;
+import com.example.loginauthapi.dto.shift.ShiftBatchRequestDTO;
+import com.example.loginauthapi.dto.shift.ShiftChangesResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftExportFormat;
+import com.example.loginauthapi.dto.shift.ShiftOccurrenceDTO;
+import com.example.loginauthapi.dto.shift.ShiftPageResponseDTO;
 import com.example.loginauthapi.dto.shift.ShiftRequestDTO;
-import com.example.loginauthapi.infra.security.TokenService;
-import com.example.loginauthapi.repositories.ShiftRepository;
-import com.example.loginauthapi.repositories.UserRepository;
+import com.example.loginauthapi.dto.shift.ShiftResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftSummaryDTO;
+import com.example.loginauthapi.dto.shift.ShiftSummaryGranularity;
+import com.example.loginauthapi.infra.metrics.ErrorMetrics;
+import com.example.loginauthapi.infra.security.AuthenticatedUser;
+import com.example.loginauthapi.infra.web.AsyncTimeoutConfig;
+import com.example.loginauthapi.services.ShiftArchiveService;
+import com.example.loginauthapi.services.ShiftExportService;
 import com.example.loginauthapi.services.ShiftService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/shifts")
@@ -25,133 +49,241 @@ import java.util.Optional;
 public class ShiftController {
 
     private static final Logger log = LoggerFactory.getLogger(ShiftController.class);
+    // responses are per user and must be revalidated every time, which costs one version lookup when nothing changed
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     @Autowired
     ShiftService shiftService;
     @Autowired
-    TokenService tokenService;
-
+    ShiftExportService shiftExportService;
     @Autowired
-    ShiftRepository shiftRepository;
+    ShiftArchiveService shiftArchiveService;
     @Autowired
-    UserRepository userRepository;
+    ErrorMetrics errorMetrics;
+
+    @Value("${api.shifts.export.timeout:10m}")
+    private Duration exportTimeout;
 
     @GetMapping("/getAll")
-    public ResponseEntity<List<Shift>> getAll(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader) {
+    public ResponseEntity<List<ShiftResponseDTO>> getAll(@AuthenticationPrincipal AuthenticatedUser user,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            if (!this.hasAuthorization(authorizationHeader)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Collections.emptyList());
-
-            String token = extractAuthorizationToken(authorizationHeader);
-            String userEmail = tokenService.validateToken(token);
-
-            if(userEmail == null) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Collections.emptyList());
-            }
-
-            List<Shift> userShifts = shiftService.findByUser(userRepository.findByEmail(userEmail).get());
+            return versioned(user, ifNoneMatch, () -> shiftService.findResponsesByUser(user.id()));
+        } catch (ResponseStatusException e) {
+            return failure(e, e.getStatusCode(), Collections.emptyList());
+        } catch (Exception e) {
+            return failure(e, HttpStatus.BAD_REQUEST, Collections.emptyList());
+        }
+    }
 
-            return ResponseEntity.ok(userShifts);
+    @GetMapping("/list")
+    public ResponseEntity<ShiftPageResponseDTO> list(@AuthenticationPrincipal AuthenticatedUser user,
+                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "" + ShiftService.DEFAULT_PAGE_SIZE) int limit,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            return versioned(user, ifNoneMatch, () -> shiftService.findWindow(user.id(), from, to, cursor, limit));
+        } catch (ResponseStatusException e) {
+            return failure(e, e.getStatusCode(), null);
+        } catch (IllegalArgumentException e) {
+            return failure(e, HttpStatus.BAD_REQUEST, null);
+        }
+    }
 
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Collections.emptyList());
+    @GetMapping("/calendar")
+    public ResponseEntity<List<ShiftOccurrenceDTO>> calendar(@AuthenticationPrincipal AuthenticatedUser user,
+                                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                             @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            return versioned(user, ifNoneMatch, () -> shiftService.findCalendar(user.id(), from, to));
+        } catch (ResponseStatusException e) {
+            return failure(e, e.getStatusCode(), Collections.emptyList());
+        } catch (IllegalArgumentException e) {
+            return failure(e, HttpStatus.BAD_REQUEST, Collections.emptyList());
         }
     }
 
-    @PostMapping("/createShift")
-    public ResponseEntity<Shift> createShift(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader, @RequestBody ShiftRequestDTO body) {
+    @GetMapping("/summary")
+    public ResponseEntity<List<ShiftSummaryDTO>> summary(@AuthenticationPrincipal AuthenticatedUser user,
+                                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                         @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                         @RequestParam(defaultValue = "MONTH") ShiftSummaryGranularity granularity,
+                                                         @RequestParam(defaultValue = "false") boolean byLocation,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            if (!this.hasAuthorization(authorizationHeader)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
+            return versioned(user, ifNoneMatch, () -> shiftService.summarize(user.id(), from, to, granularity, byLocation));
+        } catch (ResponseStatusException e) {
+            return failure(e, e.getStatusCode(), Collections.emptyList());
+        } catch (IllegalArgumentException e) {
+            return failure(e, HttpStatus.BAD_REQUEST, Collections.emptyList());
+        }
+    }
 
-                String token = extractAuthorizationToken(authorizationHeader);
-                String userEmail = tokenService.validateToken(token);
+    // months past the archive horizon are no longer in /list, /calendar or /summary; this is where they are read from
+    @GetMapping("/history")
+    public ResponseEntity<List<ShiftOccurrenceDTO>> history(@AuthenticationPrincipal AuthenticatedUser user,
+                                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(shiftArchiveService.findHistory(user.id(), from, to));
+        } catch (IllegalArgumentException e) {
+            return failure(e, HttpStatus.BAD_REQUEST, Collections.emptyList());
+        }
+    }
 
-                if(userEmail == null) {
-                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-                }
+    @GetMapping("/changes")
+    public ResponseEntity<ShiftChangesResponseDTO> changes(@AuthenticationPrincipal AuthenticatedUser user,
+                                                           @RequestParam(required = false) String since,
+                                                           @RequestParam(defaultValue = "" + ShiftService.MAX_PAGE_SIZE) int limit) {
+        try {
+            return ResponseEntity.ok(shiftService.findChanges(user.id(), since, limit));
+        } catch (IllegalArgumentException e) {
+            return failure(e, HttpStatus.BAD_REQUEST, null);
+        }
+    }
 
-                //front end should handle in case user already have a shift starting in the requested time
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@AuthenticationPrincipal AuthenticatedUser user,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                        @RequestParam(defaultValue = "CSV") ShiftExportFormat format,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                        HttpServletRequest request) {
+        LocalDateTime start = from == null ? ShiftExportService.EARLIEST : from;
+        LocalDateTime end = to == null ? ShiftExportService.LATEST : to;
+        if (!start.isBefore(end)) return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+
+        request.setAttribute(AsyncTimeoutConfig.TIMEOUT, exportTimeout);
+        // compressed here rather than by the container so only this endpoint pays for it
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 8192) : out;
+            try {
+                shiftExportService.export(user.id(), start, end, format, target);
+            } catch (Exception e) {
+                // the status is already committed, so all that is left is to cut the download short
+                errorMetrics.record("/shifts/export", e, HttpStatus.INTERNAL_SERVER_ERROR);
+                log.warn("Shift export failed for user {}", user.id(), e);
+                throw e;
+            }
+            if (target instanceof GZIPOutputStream compressed) compressed.finish();
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename("shifts." + format.extension()).build().toString())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.body(body);
+    }
 
-                Shift newShift = new Shift();
-                newShift.setStartTime(body.startTime());
-                newShift.setEndTime(body.endTime());
-                newShift.setValue(body.value());
-                newShift.setLocation(body.location());
-                newShift.setUser(userRepository.findByEmail(userEmail).get());
-                this.shiftRepository.save(newShift);
+    @GetMapping("/conflicts")
+    public ResponseEntity<List<ShiftOccurrenceDTO>> conflicts(@AuthenticationPrincipal AuthenticatedUser user,
+                                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                              @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            return ResponseEntity.ok(shiftService.findConflicts(user.id(), from, to));
+        } catch (IllegalArgumentException e) {
+            return failure(e, HttpStatus.BAD_REQUEST, Collections.emptyList());
+        }
+    }
 
-                return ResponseEntity.ok(newShift);
+    @PostMapping("/createShift")
+    public ResponseEntity<ShiftResponseDTO> createShift(@AuthenticationPrincipal AuthenticatedUser user, @RequestBody ShiftRequestDTO body) {
+        try {
+            return ResponseEntity.ok(shiftService.create(user.id(), body));
+        } catch (ResponseStatusException e) {
+            return failure(e, e.getStatusCode(), null);
+        } catch (Exception e) {
+            return failure(e, HttpStatus.BAD_REQUEST, null);
+        }
+    }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<ShiftBatchItemResultDTO>> batch(@AuthenticationPrincipal AuthenticatedUser user, @RequestBody ShiftBatchRequestDTO body) {
+        try {
+            return ResponseEntity.ok(shiftService.applyBatch(user.id(), body));
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+            return failure(e, HttpStatus.BAD_REQUEST, Collections.emptyList());
         }
     }
 
     @DeleteMapping("/deleteShift/{id}")
-    public ResponseEntity<String> deleteShift(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader, @PathVariable Long id) {
+    public ResponseEntity<String> deleteShift(@AuthenticationPrincipal AuthenticatedUser user, @PathVariable Long id) {
         try {
-            if (!hasAuthorization(authorizationHeader)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-
-            String token = extractAuthorizationToken(authorizationHeader);
-            String userEmail = tokenService.validateToken(token);
-
-            if(userEmail == null) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-            }
-
-            Shift shift = shiftRepository.findById(id).get();
-
-            if(shift.getUser().getEmail().equals(userEmail)) {
-                shiftRepository.delete(shift);
-                return ResponseEntity.ok(id + "shift deleted");
-            } else {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-            }
-
+            shiftService.delete(user.id(), id);
+            return ResponseEntity.ok(id + "shift deleted");
+        } catch (ResponseStatusException e) {
+            return failure(e, e.getStatusCode(), null);
         } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+            return failure(e, HttpStatus.BAD_REQUEST, null);
         }
     }
 
     @PostMapping("/updateShift/{id}")
-    public ResponseEntity<Shift> updateShift(@RequestHeader(HttpHeaders.AUTHORIZATION) String authorizationHeader, @PathVariable Long id, @RequestBody ShiftRequestDTO body) {
+    public ResponseEntity<ShiftResponseDTO> updateShift(@AuthenticationPrincipal AuthenticatedUser user, @PathVariable Long id, @RequestBody ShiftRequestDTO body) {
         try {
-            if (!hasAuthorization(authorizationHeader)) return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-
-            String token = this.extractAuthorizationToken(authorizationHeader);
-            String userEmail = tokenService.validateToken(token);
-
-            if(userEmail == null) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-            }
+            return ResponseEntity.ok(shiftService.update(user.id(), id, body));
+        } catch (ResponseStatusException e) {
+            return failure(e, e.getStatusCode(), null);
+        } catch (Exception e) {
+            return failure(e, HttpStatus.BAD_REQUEST, null);
+        }
+    }
 
-            Optional<Shift> optionalShift = shiftRepository.findById(id);
-            if (optionalShift.isEmpty()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
-            }
-            Shift shift = optionalShift.get();
-
-            if(shift.getUser().getEmail().equals(userEmail)) {
-                shift.setStartTime(body.startTime());
-                shift.setEndTime(body.endTime());
-                shift.setValue(body.value());
-                shift.setLocation(body.location());
-                this.shiftRepository.save(shift);
-                return ResponseEntity.ok(shift);
-            } else {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(null);
-            }
+    private <T> ResponseEntity<T> failure(Exception e, HttpStatusCode status, T body) {
+        errorMetrics.record(e, status);
+        if (e instanceof ResponseStatusException || e instanceof IllegalArgumentException) {
+            log.debug("Shift request rejected with {}", status, e);
+        } else {
+            log.warn("Shift request failed", e);
+        }
+        return ResponseEntity.status(status).body(body);
+    }
 
-        } catch (Exception e) {
-            System.out.println(e);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+    // the version is read before the body, so a write racing this request can only leave the ETag older than
+    // the data, which costs the client one more download but never hides a change from it
+    private <T> ResponseEntity<T> versioned(AuthenticatedUser user, String ifNoneMatch, Supplier<T> body) {
+        String etag = shiftService.findVersionTag(user.id());
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
         }
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(body.get());
     }
 
-    public boolean hasAuthorization(String authorizationHeader) {
-        return authorizationHeader != null && authorizationHeader.startsWith("Bearer ");
+    // If-None-Match uses the weak comparison, so a W/ prefix added by a proxy still matches
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag)) return true;
+        }
+        return false;
     }
 
-    public String extractAuthorizationToken(String authorizationHeader) {
-        return authorizationHeader.substring(7);
+    // only a gzip coding the client lists with a weight above zero counts; "gzip;q=0" is how it says no
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String candidate : acceptEncoding.split(",")) {
+            String[] parameters = candidate.split(";");
+            String coding = parameters[0].trim();
+            if (!coding.equalsIgnoreCase("gzip") && !coding.equalsIgnoreCase("x-gzip")) continue;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (!parameter.regionMatches(true, 0, "q=", 0, 2)) continue;
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim()) > 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
     }
 
 }
@@ -0,0 +1,80 @@
+package com.example.loginauthapi.controllers;
+
+import com.example.loginauthapi.dto.market.ShiftOfferPageResponseDTO;
+import com.example.loginauthapi.dto.market.ShiftOfferRequestDTO;
+import com.example.loginauthapi.dto.market.ShiftOfferResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftResponseDTO;
+import com.example.loginauthapi.infra.security.AuthenticatedUser;
+import com.example.loginauthapi.services.ShiftMarketService;
+import com.example.loginauthapi.services.ShiftService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/market/offers")
+@RequiredArgsConstructor
+public class ShiftMarketController {
+
+    @Autowired
+    ShiftMarketService shiftMarketService;
+
+    @GetMapping
+    public ResponseEntity<ShiftOfferPageResponseDTO> search(@AuthenticationPrincipal AuthenticatedUser user,
+                                                            @RequestParam(required = false) String state,
+                                                            @RequestParam(required = false) String city,
+                                                            @RequestParam(required = false) Integer professionalType,
+                                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                            @RequestParam(required = false) String cursor,
+                                                            @RequestParam(defaultValue = "" + ShiftService.DEFAULT_PAGE_SIZE) int limit) {
+        try {
+            return ResponseEntity.ok(shiftMarketService.search(user.id(), state, city, professionalType, from, to, cursor, limit));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(null);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+
+    @PostMapping
+    public ResponseEntity<ShiftOfferResponseDTO> post(@AuthenticationPrincipal AuthenticatedUser user, @RequestBody ShiftOfferRequestDTO body) {
+        try {
+            return ResponseEntity.ok(shiftMarketService.post(user.id(), body));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(null);
+        }
+    }
+
+    // the loser of two concurrent claims gets the same 409 as someone claiming an offer that is already taken
+    @PostMapping("/{id}/claim")
+    public ResponseEntity<ShiftResponseDTO> claim(@AuthenticationPrincipal AuthenticatedUser user, @PathVariable long id) {
+        try {
+            return ResponseEntity.ok(shiftMarketService.claim(user.id(), id));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(null);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<String> withdraw(@AuthenticationPrincipal AuthenticatedUser user, @PathVariable long id) {
+        try {
+            shiftMarketService.withdraw(user.id(), id);
+            return ResponseEntity.ok(id + " offer withdrawn");
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(null);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
+        }
+    }
+}
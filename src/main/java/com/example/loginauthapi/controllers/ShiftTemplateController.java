@@ -0,0 +1,82 @@
+package com.example.loginauthapi.controllers;
+
+import com.example.loginauthapi.dto.shift.ShiftRequestDTO;
+import com.example.loginauthapi.dto.shift.ShiftResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftTemplateRequestDTO;
+import com.example.loginauthapi.dto.shift.ShiftTemplateResponseDTO;
+import com.example.loginauthapi.infra.security.AuthenticatedUser;
+import com.example.loginauthapi.services.ShiftTemplateService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@RestController
+@RequestMapping("/shift-templates")
+@RequiredArgsConstructor
+public class ShiftTemplateController {
+
+    @Autowired
+    ShiftTemplateService shiftTemplateService;
+
+    @GetMapping
+    public ResponseEntity<List<ShiftTemplateResponseDTO>> getAll(@AuthenticationPrincipal AuthenticatedUser user) {
+        return ResponseEntity.ok(shiftTemplateService.findByUser(user.id()));
+    }
+
+    @PostMapping
+    public ResponseEntity<ShiftTemplateResponseDTO> create(@AuthenticationPrincipal AuthenticatedUser user, @RequestBody ShiftTemplateRequestDTO body) {
+        try {
+            return ResponseEntity.ok(shiftTemplateService.create(user.id(), body));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(null);
+        }
+    }
+
+    @PostMapping("/{id}")
+    public ResponseEntity<ShiftTemplateResponseDTO> update(@AuthenticationPrincipal AuthenticatedUser user, @PathVariable long id, @RequestBody ShiftTemplateRequestDTO body) {
+        try {
+            return ResponseEntity.ok(shiftTemplateService.update(user.id(), id, body));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(null);
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<String> delete(@AuthenticationPrincipal AuthenticatedUser user, @PathVariable long id) {
+        try {
+            shiftTemplateService.delete(user.id(), id);
+            return ResponseEntity.ok(id + " template deleted");
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(null);
+        }
+    }
+
+    @PostMapping("/{id}/occurrences/{date}")
+    public ResponseEntity<ShiftResponseDTO> overrideOccurrence(@AuthenticationPrincipal AuthenticatedUser user, @PathVariable long id,
+                                                               @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                                               @RequestBody ShiftRequestDTO body) {
+        try {
+            return ResponseEntity.ok(shiftTemplateService.overrideOccurrence(user.id(), id, date, body));
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(null);
+        }
+    }
+
+    @DeleteMapping("/{id}/occurrences/{date}")
+    public ResponseEntity<String> cancelOccurrence(@AuthenticationPrincipal AuthenticatedUser user, @PathVariable long id,
+                                                   @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        try {
+            shiftTemplateService.cancelOccurrence(user.id(), id, date);
+            return ResponseEntity.ok(date + " occurrence cancelled");
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(null);
+        }
+    }
+}
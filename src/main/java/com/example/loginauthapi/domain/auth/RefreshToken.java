@@ -0,0 +1,48 @@
+package com.example.loginauthapi.domain.auth;
+
+import com.example.loginauthapi.domain.user.User;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "refresh_token", indexes = {
+        @Index(name = "idx_refresh_token_hash", columnList = "token_hash", unique = true),
+        @Index(name = "idx_refresh_token_family", columnList = "family"),
+        @Index(name = "idx_refresh_token_user", columnList = "user_id"),
+        @Index(name = "idx_refresh_token_expires_at", columnList = "expires_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshToken {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    // only the sha-256 of the token is stored; the token itself is 256 random bits, so a fast hash is enough
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;
+    // every token rotated out of the same login shares a family, so a replayed token can revoke all of them
+    @Column(nullable = false, length = 36)
+    private String family;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+    // set once the token has been exchanged for a new one; presenting it again means it leaked
+    @Column(name = "used_at")
+    private Instant usedAt;
+    @Column(nullable = false)
+    private boolean revoked;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+}
@@ -0,0 +1,49 @@
+package com.example.loginauthapi.domain.location;
+
+import com.example.loginauthapi.domain.user.User;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "location", indexes = {
+        @Index(name = "uk_location_user_name", columnList = "user_id, normalized_name", unique = true),
+        @Index(name = "idx_location_user_last_used", columnList = "user_id, last_used_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class Location {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    // the spelling the location was first entered with; later spellings that normalize the same map onto it
+    @Column(nullable = false)
+    private String name;
+    @Column(name = "normalized_name", nullable = false)
+    private String normalizedName;
+    @Column(name = "last_used_at", nullable = false)
+    private LocalDateTime lastUsedAt;
+
+    // rollup over the stored shifts at this location that are not cancelled, adjusted on every shift write
+    @ColumnDefault("0")
+    @Column(name = "shift_count", nullable = false)
+    private long shiftCount;
+    @ColumnDefault("0")
+    @Column(name = "total_seconds", nullable = false)
+    private long totalSeconds;
+    @ColumnDefault("0")
+    @Column(name = "total_value", nullable = false)
+    private double totalValue;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+}
@@ -0,0 +1,63 @@
+package com.example.loginauthapi.domain.market;
+
+import com.example.loginauthapi.domain.user.User;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+// the search always pins status, state and professional type, optionally city, and ranges over start_time
+@Entity
+@Table(name = "shift_offer", indexes = {
+        @Index(name = "idx_shift_offer_region", columnList = "status, state, professional_type, start_time, id"),
+        @Index(name = "idx_shift_offer_region_city", columnList = "status, state, professional_type, city, start_time, id"),
+        @Index(name = "idx_shift_offer_poster", columnList = "poster_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShiftOffer {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    @Column(name = "start_time", nullable = false)
+    private LocalDateTime startTime;
+    @Column(name = "end_time", nullable = false)
+    private LocalDateTime endTime;
+    @Column(nullable = false)
+    private double value;
+    @Column(nullable = false)
+    private String location;
+
+    // copied from the poster when the offer is made, normalized, so the search never joins users
+    @Column(nullable = false)
+    private String state;
+    @Column(nullable = false)
+    private String city;
+    @Column(name = "professional_type", nullable = false)
+    private int professionalType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ShiftOfferStatus status;
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    // claims and withdrawals are conditional on it, so of two concurrent claims exactly one commits
+    @Version
+    private long version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "poster_id", nullable = false)
+    private User poster;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "claimed_by_id")
+    private User claimedBy;
+}
@@ -0,0 +1,7 @@
+package com.example.loginauthapi.domain.market;
+
+public enum ShiftOfferStatus {
+    OPEN,
+    CLAIMED,
+    WITHDRAWN
+}
@@ -1,38 +1,82 @@
 package com.example.loginauthapi.domain.shift;
 
+import com.example.loginauthapi.domain.location.Location;
 import com.example.loginauthapi.domain.user.User;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.PartitionKey;
+import org.hibernate.annotations.UpdateTimestamp;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
+@Table(name = "shift", indexes = {
+        @Index(name = "idx_shift_user_start_time", columnList = "user_id, start_time, id"),
+        @Index(name = "idx_shift_user_sync_version", columnList = "user_id, sync_version, id"),
+        @Index(name = "idx_shift_template_occurrence", columnList = "template_id, occurrence_date")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "shifts")
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 public class Shift {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "shift_seq")
+    @SequenceGenerator(name = "shift_seq", sequenceName = "shift_seq", allocationSize = 50)
     private long id;
 
+    // the table is partitioned by month on this column; naming it in updates and deletes lets postgres go straight
+    // to one partition instead of probing the primary key of every one
+    @PartitionKey
     @Column(name = "start_time", nullable = false)
     private LocalDateTime startTime;
     @Column(name = "end_time", nullable = false)
     private LocalDateTime endTime;
     @Column(nullable = false)
     private double value;
+    // the text as entered, kept on the row so lists, exports and the change feed need no join
     @Column(nullable = false)
     private String location;
+    // the directory entry that text resolves to, which the per-location rollups are kept against
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "location_id")
+    private Location locationRef;
 
     @JsonIgnoreProperties("shifts")
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
+    // set when this row overrides or cancels one occurrence of a recurring template
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "template_id")
+    private ShiftTemplate template;
+    @Column(name = "occurrence_date")
+    private LocalDate occurrenceDate;
+    // deleted shifts and cancelled occurrences alike are kept as tombstones so /shifts/changes can report them
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private boolean cancelled;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    // the owner's shifts_version at the write that last touched this row, i.e. its position in the change feed
+    @ColumnDefault("0")
+    @Column(name = "sync_version", nullable = false)
+    private long syncVersion;
 
 }
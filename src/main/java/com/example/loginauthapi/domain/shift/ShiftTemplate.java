@@ -0,0 +1,59 @@
+package com.example.loginauthapi.domain.shift;
+
+import com.example.loginauthapi.domain.user.User;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Entity
+@Table(name = "shift_template", indexes = {
+        @Index(name = "idx_shift_template_user", columnList = "user_id"),
+        @Index(name = "idx_shift_template_user_sync_version", columnList = "user_id, sync_version, id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShiftTemplate {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    // bit 0 is Monday, bit 6 is Sunday
+    @Column(name = "days_of_week", nullable = false)
+    private int daysOfWeek;
+    @Column(name = "interval_weeks", nullable = false)
+    private int intervalWeeks;
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+    @Column(name = "duration_minutes", nullable = false)
+    private int durationMinutes;
+    @Column(nullable = false)
+    private double value;
+    @Column(nullable = false)
+    private String location;
+
+    @Column(name = "start_date", nullable = false)
+    private LocalDate startDate;
+    @Column(name = "end_date")
+    private LocalDate endDate;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    // a deleted template stays behind as a tombstone for /shifts/changes, like a cancelled shift
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private boolean deleted;
+
+    @ColumnDefault("0")
+    @Column(name = "sync_version", nullable = false)
+    private long syncVersion;
+}
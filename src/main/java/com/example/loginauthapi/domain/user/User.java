@@ -1,18 +1,26 @@
 package com.example.loginauthapi.domain.user;
 
-import com.example.loginauthapi.domain.shift.Shift;
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Locale;
 
 @Entity
-@Table(name = "users")
+@Table(name = "users", indexes = {
+        @Index(name = "uk_users_email_normalized", columnList = "email_normalized", unique = true)
+})
+@DynamicUpdate
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 @Getter
 @Setter
 @AllArgsConstructor
@@ -24,6 +32,10 @@ public class User {
     private String id;
     private String name;
     private String email;
+    // what lookups and the unique index use; the email itself keeps the casing it was registered with
+    @JsonIgnore
+    @Column(name = "email_normalized")
+    private String normalizedEmail;
     private String professionalRegister;
     private String city;
     private String state;
@@ -32,7 +44,28 @@ public class User {
     @JsonIgnore
     private String password;
 
-    @JsonIgnoreProperties("user")
-    @OneToMany(mappedBy = "user", fetch = FetchType.LAZY, orphanRemoval = true)
-    private List<Shift> shifts;
+    // bumped by every shift or template write, handed out as the ETag of the shift reads
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private long shiftsVersion;
+
+    // the shiftsVersion of the last archive run that moved shifts of the user, and the end of the month it moved
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(name = "archived_version", nullable = false)
+    private long archivedVersion;
+    @JsonIgnore
+    @Column(name = "archived_before")
+    private LocalDateTime archivedBefore;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeEmail() {
+        this.normalizedEmail = normalizeEmail(email);
+    }
+
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
 }
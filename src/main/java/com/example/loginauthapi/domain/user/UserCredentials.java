@@ -0,0 +1,9 @@
+package com.example.loginauthapi.domain.user;
+
+// the part of a user that authentication needs, immutable so one instance can be shared by every request thread
+public record UserCredentials(String id, String email, String name, String passwordHash) {
+
+    public static UserCredentials from(User user) {
+        return new UserCredentials(user.getId(), user.getEmail(), user.getName(), user.getPassword());
+    }
+}
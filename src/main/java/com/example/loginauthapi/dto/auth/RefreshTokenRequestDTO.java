@@ -0,0 +1,3 @@
+package com.example.loginauthapi.dto.auth;
+
+public record RefreshTokenRequestDTO(String refreshToken) { }
@@ -1,3 +1,3 @@
 package com.example.loginauthapi.dto.auth;
 
-public record ResponseDTO (String name, String token, String email) { }
+public record ResponseDTO (String name, String token, String email, String refreshToken) { }
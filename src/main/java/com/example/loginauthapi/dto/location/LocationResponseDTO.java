@@ -0,0 +1,5 @@
+package com.example.loginauthapi.dto.location;
+
+import java.time.LocalDateTime;
+
+public record LocationResponseDTO(long id, String name, long shiftCount, LocalDateTime lastUsedAt) { }
@@ -0,0 +1,11 @@
+package com.example.loginauthapi.dto.location;
+
+import com.example.loginauthapi.domain.location.Location;
+
+public record LocationStatsDTO(long id, String name, long shiftCount, double totalHours, double totalValue, double valuePerHour) {
+    public static LocationStatsDTO from(Location location) {
+        double hours = location.getTotalSeconds() / 3600.0;
+        return new LocationStatsDTO(location.getId(), location.getName(), location.getShiftCount(), hours,
+                location.getTotalValue(), hours > 0 ? location.getTotalValue() / hours : 0);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.loginauthapi.dto.market;
+
+import java.util.List;
+
+public record ShiftOfferPageResponseDTO(List<ShiftOfferResponseDTO> items, String nextCursor) {
+}
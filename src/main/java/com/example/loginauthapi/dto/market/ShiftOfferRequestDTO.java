@@ -0,0 +1,5 @@
+package com.example.loginauthapi.dto.market;
+
+import java.time.LocalDateTime;
+
+public record ShiftOfferRequestDTO(LocalDateTime startTime, LocalDateTime endTime, double value, String location) { }
@@ -0,0 +1,14 @@
+package com.example.loginauthapi.dto.market;
+
+import com.example.loginauthapi.domain.market.ShiftOffer;
+import com.example.loginauthapi.domain.market.ShiftOfferStatus;
+
+import java.time.LocalDateTime;
+
+public record ShiftOfferResponseDTO(long id, LocalDateTime startTime, LocalDateTime endTime, double value, String location,
+                                    String state, String city, int professionalType, ShiftOfferStatus status) {
+    public static ShiftOfferResponseDTO from(ShiftOffer offer) {
+        return new ShiftOfferResponseDTO(offer.getId(), offer.getStartTime(), offer.getEndTime(), offer.getValue(), offer.getLocation(),
+                offer.getState(), offer.getCity(), offer.getProfessionalType(), offer.getStatus());
+    }
+}
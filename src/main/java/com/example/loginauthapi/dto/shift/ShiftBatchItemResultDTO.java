@@ -0,0 +1,4 @@
+package com.example.loginauthapi.dto.shift;
+
+public record ShiftBatchItemResultDTO(ShiftBatchOperation operation, int index, Long id, int status, ShiftResponseDTO shift) {
+}
@@ -0,0 +1,7 @@
+package com.example.loginauthapi.dto.shift;
+
+public enum ShiftBatchOperation {
+    CREATE,
+    UPDATE,
+    DELETE
+}
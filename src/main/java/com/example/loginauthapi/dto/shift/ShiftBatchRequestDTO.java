@@ -0,0 +1,6 @@
+package com.example.loginauthapi.dto.shift;
+
+import java.util.List;
+
+public record ShiftBatchRequestDTO(List<ShiftRequestDTO> create, List<ShiftBatchUpdateDTO> update, List<Long> delete) {
+}
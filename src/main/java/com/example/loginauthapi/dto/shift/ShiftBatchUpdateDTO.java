@@ -0,0 +1,4 @@
+package com.example.loginauthapi.dto.shift;
+
+public record ShiftBatchUpdateDTO(long id, ShiftRequestDTO shift) {
+}
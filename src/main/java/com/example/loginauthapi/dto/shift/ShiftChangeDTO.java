@@ -0,0 +1,7 @@
+package com.example.loginauthapi.dto.shift;
+
+import java.time.LocalDateTime;
+
+public record ShiftChangeDTO(long id, long version, boolean deleted, LocalDateTime updatedAt, LocalDateTime startTime, LocalDateTime endTime,
+                             double value, String location) {
+}
@@ -0,0 +1,9 @@
+package com.example.loginauthapi.dto.shift;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// archivedBefore is set when shifts were archived since the cursor: every shift starting before it is gone
+public record ShiftChangesResponseDTO(List<ShiftChangeDTO> changes, List<ShiftTemplateChangeDTO> templateChanges,
+                                      LocalDateTime archivedBefore, String nextCursor, boolean hasMore) {
+}
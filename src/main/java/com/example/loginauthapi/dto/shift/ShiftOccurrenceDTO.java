@@ -0,0 +1,9 @@
+package com.example.loginauthapi.dto.shift;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// id is null for occurrences expanded from a template that have not been materialized as a Shift row
+public record ShiftOccurrenceDTO(Long id, Long templateId, LocalDate occurrenceDate, LocalDateTime startTime, LocalDateTime endTime,
+                                 double value, String location) {
+}
@@ -0,0 +1,6 @@
+package com.example.loginauthapi.dto.shift;
+
+import java.util.List;
+
+public record ShiftPageResponseDTO(List<ShiftResponseDTO> items, String nextCursor) {
+}
@@ -0,0 +1,12 @@
+package com.example.loginauthapi.dto.shift;
+
+import com.example.loginauthapi.domain.shift.Shift;
+
+import java.time.LocalDateTime;
+
+public record ShiftResponseDTO(long id, LocalDateTime startTime, LocalDateTime endTime, double value, String location) {
+
+    public static ShiftResponseDTO from(Shift shift) {
+        return new ShiftResponseDTO(shift.getId(), shift.getStartTime(), shift.getEndTime(), shift.getValue(), shift.getLocation());
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.loginauthapi.dto.shift;
+
+import java.time.LocalDate;
+
+public record ShiftSummaryDTO(LocalDate periodStart, String location, long shiftCount, double totalHours, double totalValue) {
+}
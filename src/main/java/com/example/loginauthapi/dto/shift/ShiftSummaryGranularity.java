@@ -0,0 +1,16 @@
+package com.example.loginauthapi.dto.shift;
+
+public enum ShiftSummaryGranularity {
+    MONTH("month"),
+    WEEK("week");
+
+    private final String truncationUnit;
+
+    ShiftSummaryGranularity(String truncationUnit) {
+        this.truncationUnit = truncationUnit;
+    }
+
+    public String truncationUnit() {
+        return truncationUnit;
+    }
+}
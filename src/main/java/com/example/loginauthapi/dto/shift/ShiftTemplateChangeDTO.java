@@ -0,0 +1,6 @@
+package com.example.loginauthapi.dto.shift;
+
+// the template's occurrences changed with this version; clients fetch the template again, or drop its
+// occurrences when it was deleted
+public record ShiftTemplateChangeDTO(long id, long version, boolean deleted) {
+}
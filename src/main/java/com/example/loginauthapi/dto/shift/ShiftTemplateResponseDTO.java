@@ -0,0 +1,10 @@
+package com.example.loginauthapi.dto.shift;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Set;
+
+public record ShiftTemplateResponseDTO(long id, Set<DayOfWeek> daysOfWeek, int intervalWeeks, LocalTime startTime, int durationMinutes,
+                                       double value, String location, LocalDate startDate, LocalDate endDate) {
+}
@@ -0,0 +1,49 @@
+package com.example.loginauthapi.infra.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+// runs inside isDebugEnabled, before the caller has built or formatted anything, so an unsampled statement costs
+// one random number. Hibernate asks first and jboss-logging asks again before logging; once a check is accepted the
+// checks and the event that follow on the thread are let through without drawing again, otherwise only a power of
+// the rate would get out
+public class SamplingTurboFilter extends TurboFilter {
+
+    private final ThreadLocal<Boolean> accepted = new ThreadLocal<>();
+    private String loggerName;
+    private double rate = 1.0;
+
+    public void setLoggerName(String loggerName) {
+        this.loggerName = loggerName;
+    }
+
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public void start() {
+        if (loggerName == null) {
+            addError("No loggerName set for the sampling filter");
+            return;
+        }
+        super.start();
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!isStarted() || !loggerName.equals(logger.getName())) return FilterReply.NEUTRAL;
+        if (accepted.get() != null) {
+            if (format != null) accepted.remove();
+            return FilterReply.NEUTRAL;
+        }
+        if (ThreadLocalRandom.current().nextDouble() >= rate) return FilterReply.DENY;
+        if (format == null) accepted.set(Boolean.TRUE);
+        return FilterReply.NEUTRAL;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.loginauthapi.infra.metrics;
+
+import com.example.loginauthapi.infra.cache.ExpiringCache;
+import com.example.loginauthapi.infra.security.PasswordHashingService;
+import com.example.loginauthapi.infra.security.TokenService;
+import com.example.loginauthapi.services.UserService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+// exposes the counters the caches and the hashing pool already keep, read on scrape rather than on every request
+@Component
+@RequiredArgsConstructor
+public class ApplicationMetrics implements MeterBinder {
+
+    private final TokenService tokenService;
+    private final UserService userService;
+    private final PasswordHashingService passwordHashingService;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindCache(registry, "tokens", tokenService::cacheStats);
+        bindCache(registry, "users", userService::cacheStats);
+
+        Gauge.builder("auth.password.hashing.active", passwordHashingService, s -> s.stats().active())
+                .description("Password hashes currently being computed")
+                .register(registry);
+        Gauge.builder("auth.password.hashing.queued", passwordHashingService, s -> s.stats().queued())
+                .description("Password hashes waiting for a hashing thread")
+                .register(registry);
+        FunctionCounter.builder("auth.password.hashing.rejected", passwordHashingService, s -> s.stats().rejected())
+                .description("Password hashes refused because the queue was full")
+                .register(registry);
+    }
+
+    private static void bindCache(MeterRegistry registry, String name, Supplier<ExpiringCache.CacheStats> stats) {
+        FunctionCounter.builder("app.cache.gets", stats, s -> s.get().hits()).tag("cache", name).tag("result", "hit").register(registry);
+        FunctionCounter.builder("app.cache.gets", stats, s -> s.get().misses()).tag("cache", name).tag("result", "miss").register(registry);
+        FunctionCounter.builder("app.cache.evictions", stats, s -> s.get().evictions()).tag("cache", name).register(registry);
+        Gauge.builder("app.cache.size", stats, s -> s.get().size()).tag("cache", name).register(registry);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.loginauthapi.infra.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+// the controllers turn exceptions into responses themselves, so without this they never reach http.server.requests
+@Component
+@RequiredArgsConstructor
+public class ErrorMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public void record(Throwable error, HttpStatusCode status) {
+        HttpServletRequest request = currentRequest();
+        String uri = "UNKNOWN";
+        if (request != null) {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (pattern != null) uri = pattern.toString();
+            ServerHttpObservationFilter.findObservationContext(request).ifPresent(context -> context.setError(error));
+        }
+        record(uri, error, status);
+    }
+
+    // for callbacks that finish on another thread, where the request is no longer bound
+    public void record(String uri, Throwable error, HttpStatusCode status) {
+        meterRegistry.counter("api.errors",
+                "uri", uri,
+                "exception", error.getClass().getSimpleName(),
+                "status", Integer.toString(status.value())).increment();
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet.getRequest() : null;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.loginauthapi.infra.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.SessionEventListener;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.concurrent.TimeUnit;
+
+// Hibernate creates one of these per session and open-in-view keeps one session per request, so the totals recorded
+// on close are per request. Hibernate instantiates it by class name, hence the global registry Spring Boot feeds.
+public class QueryMetricsListener implements SessionEventListener {
+
+    private int statements;
+    private long statementNanos;
+    private long startedAt;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        startedAt = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        statements++;
+        statementNanos += System.nanoTime() - startedAt;
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        startedAt = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        statements++;
+        statementNanos += System.nanoTime() - startedAt;
+    }
+
+    @Override
+    public void end() {
+        if (statements == 0) return;
+        String uri = currentUri();
+        DistributionSummary.builder("db.session.statements")
+                .description("JDBC statements and batches executed per Hibernate session")
+                .tag("uri", uri)
+                .register(Metrics.globalRegistry)
+                .record(statements);
+        Timer.builder("db.session.statement.time")
+                .description("Time spent executing JDBC statements per Hibernate session")
+                .tag("uri", uri)
+                .register(Metrics.globalRegistry)
+                .record(statementNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String currentUri() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) return "NONE";
+        Object pattern = attributes.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return pattern == null ? "UNKNOWN" : pattern.toString();
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.loginauthapi.infra.persistence;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Opt-in (api.datasource.replicas.enabled); without it Spring Boot builds the single primary pool as before.
+// The lazy proxy only takes a physical connection at the first statement, by which time the transaction has marked it
+// read-only, so @Transactional(readOnly = true) work goes to the replicas and everything else to the primary.
+@Configuration
+@ConditionalOnProperty(name = "api.datasource.replicas.enabled", havingValue = "true")
+public class ReplicaRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             @Value("${api.datasource.replicas.urls}") List<String> urls,
+                                                             @Value("${api.datasource.replicas.username:${spring.datasource.username}}") String username,
+                                                             @Value("${api.datasource.replicas.password:${spring.datasource.password}}") String password,
+                                                             @Value("${api.datasource.replicas.max-lag:5s}") Duration maxLag,
+                                                             @Value("${api.datasource.replicas.read-your-writes-window:10s}") Duration readYourWritesWindow,
+                                                             @Value("${api.datasource.replicas.health-check-interval:2s}") Duration healthCheckInterval,
+                                                             @Value("${api.datasource.replicas.max-tracked-writers:10000}") int maxTrackedWriters,
+                                                             MeterRegistry meterRegistry) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            // replicas take the primary's pool sizing and timeouts, only where they connect to differs
+            HikariConfig config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setJdbcUrl(urls.get(i).trim());
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setPoolName("replica-" + (i + 1));
+            config.setReadOnly(true);
+            // a replica that is down at startup is just unhealthy; the primary serves reads until it answers
+            config.setInitializationFailTimeout(-1);
+            config.setMetricRegistry(null);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new HikariDataSource(config));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLag, readYourWritesWindow, healthCheckInterval,
+                maxTrackedWriters, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaRoutingDataSource) {
+        DataSource writes = new DelegatingDataSource(primaryDataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                replicaRoutingDataSource.recordWrite();
+                return super.getConnection();
+            }
+        };
+        LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(writes);
+        proxy.setReadOnlyDataSource(replicaRoutingDataSource);
+        return proxy;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.loginauthapi.infra.persistence;
+
+import com.example.loginauthapi.infra.cache.ExpiringCache;
+import com.example.loginauthapi.infra.security.AuthenticatedUser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands out replica connections for read-only transactions. A replica is only used while its last health check
+ * answered within the lag tolerance, a user who wrote recently is kept on the primary, and anything that goes wrong
+ * falls back to the primary instead of failing the read.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // an idle standby that has replayed everything it received is current, however old its last replayed commit is
+    private static final String LAG_QUERY = """
+            select case
+                when not pg_is_in_recovery() then 0
+                when pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() then 0
+                else coalesce(extract(epoch from now() - pg_last_xact_replay_timestamp()), 0)
+            end
+            """;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final long maxLagMillis;
+    private final Duration readYourWritesWindow;
+    private final ExpiringCache<String, Boolean> recentWriters;
+    private final ScheduledExecutorService healthChecker;
+
+    private final Counter replicaReads;
+    private final Counter pinnedReads;
+    private final Counter fallbackReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag, Duration readYourWritesWindow,
+                                    Duration healthCheckInterval, int maxTrackedWriters, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.maxLagMillis = maxLag.toMillis();
+        this.readYourWritesWindow = readYourWritesWindow;
+        this.recentWriters = new ExpiringCache<>(maxTrackedWriters);
+        if (readYourWritesWindow.compareTo(maxLag) < 0) {
+            log.warn("Read-your-writes window {} is shorter than the replica lag tolerance {}; users may not see their own writes", readYourWritesWindow, maxLag);
+        }
+
+        this.replicaReads = routed(meterRegistry, "replica");
+        this.pinnedReads = routed(meterRegistry, "primary-recent-write");
+        this.fallbackReads = routed(meterRegistry, "primary-fallback");
+        for (int i = 0; i < this.replicas.size(); i++) {
+            Gauge.builder("db.replica.lag", this.replicas.get(i), r -> r.lagMillis / 1000.0)
+                    .description("Replication lag seen by the last health check, in seconds; -1 when the check failed")
+                    .tag("replica", Integer.toString(i + 1))
+                    .register(meterRegistry);
+        }
+
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String userId = currentUserId();
+        if (userId != null && recentWriters.get(userId) != null) {
+            pinnedReads.increment();
+            return primary.getConnection();
+        }
+
+        List<Replica> healthy = replicas.stream().filter(r -> r.healthy).toList();
+        if (healthy.isEmpty()) {
+            fallbackReads.increment();
+            return primary.getConnection();
+        }
+
+        // a user always lands on the same replica, so the ETag lookup and the read that follows it never go back in time
+        int slot = userId != null ? userId.hashCode() : ThreadLocalRandom.current().nextInt();
+        Replica replica = healthy.get(Math.floorMod(slot, healthy.size()));
+        try {
+            Connection connection = replica.dataSource.getConnection();
+            replicaReads.increment();
+            return connection;
+        } catch (SQLException e) {
+            replica.healthy = false;
+            log.warn("Replica unavailable, reading from the primary until the next health check", e);
+            fallbackReads.increment();
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    // called whenever a connection for writing is taken, which is before the commit, so the window covers it
+    public void recordWrite() {
+        String userId = currentUserId();
+        if (userId != null) recentWriters.put(userId, Boolean.TRUE, Instant.now().plus(readYourWritesWindow));
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+    }
+
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery(LAG_QUERY)) {
+                result.next();
+                replica.lagMillis = (long) (result.getDouble(1) * 1000);
+                replica.healthy = replica.lagMillis <= maxLagMillis;
+            } catch (SQLException | RuntimeException e) {
+                replica.lagMillis = -1000;
+                replica.healthy = false;
+                log.debug("Replica health check failed", e);
+            }
+        }
+    }
+
+    private static String currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user ? user.id() : null;
+    }
+
+    private static Counter routed(MeterRegistry meterRegistry, String target) {
+        return Counter.builder("db.replica.routing")
+                .description("Read-only connections handed out, by where they were routed")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+
+    private static class Replica {
+        private final DataSource dataSource;
+        private volatile boolean healthy;
+        private volatile long lagMillis = -1000;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
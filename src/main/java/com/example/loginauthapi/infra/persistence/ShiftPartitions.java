@@ -0,0 +1,120 @@
+package com.example.loginauthapi.infra.persistence;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Period;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * The monthly partitions of the shift table, named shift_yYYYYmMM, followed by shift_future for everything past the
+ * last of them. Months are only ever added at the end, split off shift_future, and dropped from the start once the
+ * archive job has emptied them, so the attached months always form one contiguous range and nothing before the
+ * oldest of them can be stored.
+ *
+ * The DDL here must run inside a transaction that took {@link #tryLock()}.
+ */
+@Component
+public class ShiftPartitions {
+
+    // the ddl below needs the whole table to itself; rather than queue every request behind a long read for longer
+    // than this, it gives up and is retried on the next run
+    private static final String LOCK_TIMEOUT = "5s";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Value("${api.shifts.archive.horizon:24m}")
+    private Period horizon;
+    @Value("${api.shifts.archive.months-ahead:3}")
+    private int monthsAhead;
+
+    // start of the oldest attached month, as of the last refresh; unknown until then, which restricts nothing
+    private volatile LocalDateTime earliestLive = LocalDateTime.MIN;
+
+    public LocalDateTime earliestLive() {
+        return earliestLive;
+    }
+
+    // months before this are due for the archive and no longer take writes, even while they are still attached
+    public YearMonth cutoff() {
+        return YearMonth.from(LocalDate.now().minus(horizon));
+    }
+
+    public LocalDateTime earliestWritable() {
+        LocalDateTime cutoff = start(cutoff());
+        return earliestLive.isAfter(cutoff) ? earliestLive : cutoff;
+    }
+
+    public List<YearMonth> months() {
+        return jdbcTemplate.queryForList("""
+                select c.relname
+                from pg_inherits i
+                join pg_class c on c.oid = i.inhrelid
+                where i.inhparent = 'shift'::regclass and c.relname ~ '^shift_y[0-9]{4}m[0-9]{2}$'
+                order by c.relname
+                """, String.class).stream()
+                .map(name -> YearMonth.of(Integer.parseInt(name.substring(7, 11)), Integer.parseInt(name.substring(12, 14))))
+                .toList();
+    }
+
+    public void refresh() {
+        List<YearMonth> months = months();
+        if (!months.isEmpty()) earliestLive = start(months.get(0));
+    }
+
+    // serializes the maintenance of all nodes; released when the transaction ends
+    public boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("select pg_try_advisory_xact_lock(hashtext('shift_partitions'))", Boolean.class));
+    }
+
+    // detaches shift_future, gives every month up to monthsAhead its own partition, moves whatever shift_future held
+    // for those months into them and attaches it again behind the last one
+    public void createAhead() {
+        List<YearMonth> months = months();
+        if (months.isEmpty()) throw new IllegalStateException("shift has no monthly partitions");
+        YearMonth next = months.get(months.size() - 1).plusMonths(1);
+        YearMonth last = YearMonth.now().plusMonths(monthsAhead);
+        if (next.isAfter(last)) return;
+
+        lockTable();
+        jdbcTemplate.execute("alter table shift detach partition shift_future");
+        for (YearMonth month = next; !month.isAfter(last); month = month.plusMonths(1)) {
+            jdbcTemplate.execute("create table %s partition of shift for values from ('%s') to ('%s')"
+                    .formatted(name(month), start(month), start(month.plusMonths(1))));
+        }
+        LocalDateTime bound = start(last.plusMonths(1));
+        jdbcTemplate.update("with moved as (delete from shift_future where start_time < ? returning *) insert into shift select * from moved", bound);
+        jdbcTemplate.execute("alter table shift attach partition shift_future for values from ('%s') to (maxvalue)".formatted(bound));
+    }
+
+    // only the oldest month is dropped, and only once it is empty, so no range is left uncovered in between
+    public boolean dropOldest(YearMonth month) {
+        List<YearMonth> months = months();
+        if (months.isEmpty() || !months.get(0).equals(month)) return false;
+
+        lockTable();
+        Boolean empty = jdbcTemplate.queryForObject("select not exists (select 1 from " + name(month) + ")", Boolean.class);
+        if (!Boolean.TRUE.equals(empty)) return false;
+        jdbcTemplate.execute("drop table " + name(month));
+        return true;
+    }
+
+    private void lockTable() {
+        jdbcTemplate.execute("set local lock_timeout = '" + LOCK_TIMEOUT + "'");
+        jdbcTemplate.execute("lock table shift in access exclusive mode");
+    }
+
+    public static LocalDateTime start(YearMonth month) {
+        return month.atDay(1).atStartOfDay();
+    }
+
+    private static String name(YearMonth month) {
+        return "shift_y%04dm%02d".formatted(month.getYear(), month.getMonthValue());
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.loginauthapi.infra.ratelimit;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket per key, kept as a single "theoretical arrival time" (GCRA): a bucket holding
+ * {@code capacity} tokens that refills one token every {@code refillPeriod / capacity}.
+ * A bucket whose arrival time has passed is full again, so it carries no state and can be dropped when the map is full.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxKeys;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+
+    public RateLimiter(int capacity, Duration refillPeriod, int maxKeys) {
+        if (capacity <= 0 || maxKeys <= 0 || refillPeriod.isZero() || refillPeriod.isNegative()) {
+            throw new IllegalArgumentException("capacity, refillPeriod and maxKeys must be positive");
+        }
+        this.intervalNanos = Math.max(1, refillPeriod.toNanos() / capacity);
+        this.burstNanos = intervalNanos * capacity;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Takes one token for {@code key}.
+     *
+     * @return zero when the token was granted, otherwise how long until one is available
+     */
+    public Duration tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong arrival = bucket(key, now);
+        while (true) {
+            long current = arrival.get();
+            long next = (current - now > 0 ? current : now) + intervalNanos;
+            long excess = next - now - burstNanos;
+            if (excess > 0) return Duration.ofNanos(excess);
+            if (arrival.compareAndSet(current, next)) return Duration.ZERO;
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private AtomicLong bucket(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) return bucket;
+        if (buckets.size() >= maxKeys) sweep(now);
+        AtomicLong created = new AtomicLong(now);
+        bucket = buckets.putIfAbsent(key, created);
+        return bucket != null ? bucket : created;
+    }
+
+    private void sweep(long now) {
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            buckets.values().removeIf(arrival -> arrival.get() - now <= 0);
+
+            // still full of throttled keys: forgetting some lets them start over with a full bucket, which is the
+            // price of bounded memory when more distinct keys are hammering than the map can hold
+            int target = maxKeys - Math.max(1, maxKeys / 10);
+            Iterator<String> keys = buckets.keySet().iterator();
+            while (buckets.size() > target && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+}
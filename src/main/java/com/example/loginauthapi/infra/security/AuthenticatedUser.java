@@ -0,0 +1,4 @@
+package com.example.loginauthapi.infra.security;
+
+public record AuthenticatedUser(String id, String email) {
+}
@@ -0,0 +1,48 @@
+package com.example.loginauthapi.infra.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// a pbkdf2 hash does not record its iteration count, so it is kept in front of the hash as "<iterations>$" and a
+// hash made with any other count is rehashed; hashes from before the prefix were made with the count configured at
+// the time, which is taken to be the current one, and are rehashed to carry it
+public class CostAwarePbkdf2PasswordEncoder implements PasswordEncoder {
+    private static final Pattern PBKDF2_ITERATIONS = Pattern.compile("^(\\d{1,9})\\$");
+
+    private final int iterations;
+    private final Map<Integer, Pbkdf2PasswordEncoder> encoders = new ConcurrentHashMap<>();
+
+    public CostAwarePbkdf2PasswordEncoder(int iterations) {
+        this.iterations = iterations;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return iterations + "$" + encoder(iterations).encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword == null) return false;
+        Matcher matcher = PBKDF2_ITERATIONS.matcher(encodedPassword);
+        if (!matcher.find()) return encoder(iterations).matches(rawPassword, encodedPassword);
+        return encoder(Integer.parseInt(matcher.group(1))).matches(rawPassword, encodedPassword.substring(matcher.end()));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) return false;
+        Matcher matcher = PBKDF2_ITERATIONS.matcher(encodedPassword);
+        return !matcher.find() || Integer.parseInt(matcher.group(1)) != iterations;
+    }
+
+    private Pbkdf2PasswordEncoder encoder(int iterations) {
+        return encoders.computeIfAbsent(iterations,
+                count -> new Pbkdf2PasswordEncoder("", 16, count, Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256));
+    }
+}
@@ -1,18 +1,28 @@
 package com.example.loginauthapi.infra.security;
 
+import com.example.loginauthapi.infra.ratelimit.AuthRateLimitFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+
+import java.util.List;
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
@@ -23,6 +33,23 @@ public class SecurityConfig {
 
     @Autowired
     SecurityFilter securityFilter;
+    @Autowired
+    AuthRateLimitFilter authRateLimitFilter;
+
+    @Value("${api.security.password.encoder:bcrypt}")
+    private String passwordEncoderId;
+    @Value("${api.security.password.bcrypt.strength:10}")
+    private int bcryptStrength;
+    @Value("${api.security.password.pbkdf2.iterations:310000}")
+    private int pbkdf2Iterations;
+    @Value("${api.security.password.argon2.memory-kib:19456}")
+    private int argon2MemoryKib;
+    @Value("${api.security.password.argon2.iterations:2}")
+    private int argon2Iterations;
+    @Value("${api.security.password.argon2.parallelism:1}")
+    private int argon2Parallelism;
+    @Value("${api.metrics.allowed-addresses:127.0.0.1/32,::1/128}")
+    private List<String> metricsAllowedAddresses;
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
@@ -32,15 +59,36 @@ public class SecurityConfig {
                 .authorizeHttpRequests(authorize -> authorize
                         .requestMatchers(HttpMethod.POST, "/auth/login").permitAll()
                         .requestMatchers(HttpMethod.POST, "/auth/register").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/auth/refresh", "/auth/logout").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/actuator/health").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/actuator/prometheus").access(fromAddresses(metricsAllowedAddresses))
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(securityFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(securityFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(authRateLimitFilter, SecurityFilter.class);
         return http.build();
     }
 
+    // scrapers carry no token, so the metrics are only served to the networks they scrape from
+    private static AuthorizationManager<RequestAuthorizationContext> fromAddresses(List<String> networks) {
+        List<IpAddressMatcher> matchers = networks.stream().map(IpAddressMatcher::new).toList();
+        return (authentication, context) -> new AuthorizationDecision(matchers.stream().anyMatch(matcher -> matcher.matches(context.getRequest())));
+    }
+
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        Map<String, PasswordEncoder> encoders = Map.of(
+                "bcrypt", new CostAwareBCryptPasswordEncoder(bcryptStrength),
+                "pbkdf2", new CostAwarePbkdf2PasswordEncoder(pbkdf2Iterations),
+                "argon2", new Argon2PasswordEncoder(16, 32, argon2Parallelism, argon2MemoryKib, argon2Iterations));
+        if (!encoders.containsKey(passwordEncoderId)) {
+            throw new IllegalStateException("Unknown password encoder: " + passwordEncoderId);
+        }
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(passwordEncoderId, encoders);
+        // hashes stored before the {id} prefix existed are plain bcrypt; they get rehashed with a prefix on next login
+        encoder.setDefaultPasswordEncoderForMatches(encoders.get("bcrypt"));
+        return encoder;
     }
 
     @Bean
@@ -0,0 +1,128 @@
+package com.example.loginauthapi.infra.security;
+
+import com.example.loginauthapi.domain.auth.RevokedToken;
+import com.example.loginauthapi.infra.cache.BloomFilter;
+import com.example.loginauthapi.repositories.RefreshTokenRepository;
+import com.example.loginauthapi.repositories.RevokedTokenRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Revoked access-token ids, kept in memory so that checking a token stays as stateless as verifying its signature.
+ * A Bloom filter answers almost every lookup; only its rare positives go to the exact set behind it. Both are
+ * refreshed from the revoked_token table on a fixed delay, which is how revocations made on other nodes arrive,
+ * and entries are dropped once the token they revoke has expired. Expired refresh tokens are deleted on the same
+ * schedule, so accounts that stop logging in do not keep theirs forever.
+ */
+@Service
+public class TokenRevocationService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationService.class);
+
+    @Autowired
+    private RevokedTokenRepository revokedTokenRepository;
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${api.security.revocation.expected-size:100000}")
+    private int expectedSize;
+    @Value("${api.security.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    @Value("${api.security.revocation.refresh-interval:5s}")
+    private Duration refreshInterval;
+    // rows are fetched again for this long after the last refresh, to cover clock skew between nodes and commits
+    // that became visible late
+    @Value("${api.security.revocation.refresh-overlap:1m}")
+    private Duration refreshOverlap;
+
+    // jti -> expiry in epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private volatile BloomFilter filter;
+    private int filterCapacity;
+    private Instant loadedUntil = Instant.EPOCH;
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    void init() {
+        this.filterCapacity = expectedSize;
+        this.filter = new BloomFilter(filterCapacity, falsePositiveRate);
+        Gauge.builder("auth.jwt.revoked", revoked, Map::size)
+                .description("Revoked access tokens that have not expired yet")
+                .register(meterRegistry);
+
+        refresh();
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocation-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = refreshInterval.toMillis();
+        refresher.scheduleWithFixedDelay(this::refresh, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void close() {
+        refresher.shutdownNow();
+    }
+
+    public boolean isRevoked(String jti) {
+        return jti != null && filter.mightContain(jti) && revoked.containsKey(jti);
+    }
+
+    public void revoke(String jti, Instant expiresAt) {
+        Instant now = Instant.now();
+        if (!expiresAt.isAfter(now)) return;
+        revokedTokenRepository.save(new RevokedToken(jti, expiresAt, now));
+        add(jti, expiresAt.toEpochMilli());
+    }
+
+    void refresh() {
+        try {
+            Instant now = Instant.now();
+            for (RevokedToken token : revokedTokenRepository.findRevokedSince(loadedUntil.minus(refreshOverlap), now)) {
+                add(token.getJti(), token.getExpiresAt().toEpochMilli());
+            }
+            loadedUntil = now;
+
+            // a Bloom filter cannot forget, so it is rebuilt from the exact set whenever something expired out of it
+            long nowMillis = now.toEpochMilli();
+            if (revoked.values().removeIf(expiresAt -> expiresAt <= nowMillis)) rebuildFilter();
+            revokedTokenRepository.deleteExpired(now);
+            refreshTokenRepository.deleteExpired(now);
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the token revocation list, keeping the current one", e);
+        }
+    }
+
+    // writers are serialized with rebuilds so an id can never land in a filter that is about to be replaced;
+    // readers stay lock-free, and the filter is written first so an id in the exact set is always in the filter
+    private synchronized void add(String jti, long expiresAtMillis) {
+        filter.add(jti);
+        revoked.put(jti, expiresAtMillis);
+        if (revoked.size() > filterCapacity) rebuildFilter();
+    }
+
+    private synchronized void rebuildFilter() {
+        filterCapacity = Math.max(expectedSize, revoked.size() * 2);
+        BloomFilter rebuilt = new BloomFilter(filterCapacity, falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::add);
+        this.filter = rebuilt;
+    }
+}
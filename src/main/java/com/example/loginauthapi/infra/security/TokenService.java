@@ -1,28 +1,67 @@
 package com.example.loginauthapi.infra.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
-import com.example.loginauthapi.domain.user.User;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.loginauthapi.infra.cache.ExpiringCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class TokenService {
+    private static final String ISSUER = "login-auth-api";
+
     @Value("${api.security.token.secret}")
     private String secret;
-    public String generateToken(User user){
-        try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
+    @Value("${api.security.token.cache.max-size:10000}")
+    private int cacheMaxSize;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private TokenRevocationService revocationService;
+
+    private Algorithm algorithm;
+    private JWTVerifier verifier;
+    private ExpiringCache<String, VerifiedToken> verifiedTokens;
+    private Timer cachedValidations;
+    private Timer verifiedValidations;
+    private Timer rejectedValidations;
 
+    @PostConstruct
+    void init() {
+        this.algorithm = Algorithm.HMAC256(secret);
+        this.verifier = JWT.require(algorithm)
+                .withIssuer(ISSUER)
+                .build();
+        this.verifiedTokens = new ExpiringCache<>(cacheMaxSize);
+        this.cachedValidations = validationTimer("cached");
+        this.verifiedValidations = validationTimer("verified");
+        this.rejectedValidations = validationTimer("rejected");
+    }
+
+    public String generateToken(String email){
+        try {
             String token = JWT.create()
-                    .withIssuer("login-auth-api")
-                    .withSubject(user.getEmail())
+                    .withIssuer(ISSUER)
+                    .withSubject(email)
+                    .withJWTId(UUID.randomUUID().toString())
                     .withExpiresAt(this.generateExpirationDate())
                     .sign(algorithm);
             return token;
@@ -32,19 +71,76 @@ public class TokenService {
     }
 
     public String validateToken(String token){
+        if (token == null || token.isBlank()) return null;
+
+        long startedAt = System.nanoTime();
+        String key = hash(token);
+        VerifiedToken cached = verifiedTokens.get(key);
+        if (cached != null) {
+            if (revocationService.isRevoked(cached.jti())) {
+                verifiedTokens.invalidate(key);
+                rejectedValidations.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                return null;
+            }
+            cachedValidations.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            return cached.subject();
+        }
+
         try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
-            return JWT.require(algorithm)
-                    .withIssuer("login-auth-api")
-                    .build()
-                    .verify(token)
-                    .getSubject();
+            DecodedJWT decoded = verifier.verify(token);
+            if (revocationService.isRevoked(decoded.getId())) {
+                rejectedValidations.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                return null;
+            }
+            // tokens without exp never expire on their own, so they are not worth pinning in memory
+            if (decoded.getExpiresAtAsInstant() != null && decoded.getSubject() != null) {
+                verifiedTokens.put(key, new VerifiedToken(decoded.getSubject(), decoded.getId()), decoded.getExpiresAtAsInstant());
+            }
+            verifiedValidations.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            return decoded.getSubject();
         } catch (JWTVerificationException exception) {
+            rejectedValidations.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
             return null;
         }
     }
 
+    // tokens issued before the jti claim existed cannot be revoked one by one and simply run out their 2 hours
+    public void revokeToken(String token) {
+        if (token == null || token.isBlank()) return;
+        try {
+            DecodedJWT decoded = verifier.verify(token);
+            if (decoded.getId() != null && decoded.getExpiresAtAsInstant() != null) {
+                revocationService.revoke(decoded.getId(), decoded.getExpiresAtAsInstant());
+            }
+            verifiedTokens.invalidate(hash(token));
+        } catch (JWTVerificationException exception) {
+            // an invalid or expired token is already unusable
+        }
+    }
+
+    public ExpiringCache.CacheStats cacheStats() {
+        return verifiedTokens.stats();
+    }
+
+    private record VerifiedToken(String subject, String jti) { }
+
+    private Timer validationTimer(String outcome) {
+        return Timer.builder("auth.jwt.validation")
+                .description("Time to validate a bearer token, by whether the verified-token cache answered")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
     private Instant generateExpirationDate(){
         return LocalDateTime.now().plusHours(2).toInstant(ZoneOffset.of("-03:00"));
     }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
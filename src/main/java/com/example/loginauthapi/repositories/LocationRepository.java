@@ -0,0 +1,28 @@
+package com.example.loginauthapi.repositories;
+
+import com.example.loginauthapi.domain.location.Location;
+import com.example.loginauthapi.dto.location.LocationResponseDTO;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface LocationRepository extends JpaRepository<Location, Long> {
+    List<Location> findByUserId(String userId);
+
+    @Query("""
+            select new com.example.loginauthapi.dto.location.LocationResponseDTO(l.id, l.name, l.shiftCount, l.lastUsedAt)
+            from Location l
+            where l.user.id = :userId and l.normalizedName like :prefix escape '\\'
+            order by l.lastUsedAt desc, l.id desc
+            """)
+    List<LocationResponseDTO> findRecentByPrefix(String userId, String prefix, Limit limit);
+
+    @Query("""
+            select l from Location l
+            where l.user.id = :userId and l.shiftCount > 0
+            order by l.totalValue desc, l.id
+            """)
+    List<Location> findWithShifts(String userId);
+}
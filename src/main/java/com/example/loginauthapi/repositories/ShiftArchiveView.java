@@ -0,0 +1,14 @@
+package com.example.loginauthapi.repositories;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public interface ShiftArchiveView {
+    Long getId();
+    Long getTemplateId();
+    LocalDate getOccurrenceDate();
+    LocalDateTime getStartTime();
+    LocalDateTime getEndTime();
+    Double getValue();
+    String getLocation();
+}
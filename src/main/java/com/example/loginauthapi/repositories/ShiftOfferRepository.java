@@ -0,0 +1,44 @@
+package com.example.loginauthapi.repositories;
+
+import com.example.loginauthapi.domain.market.ShiftOffer;
+import com.example.loginauthapi.dto.market.ShiftOfferResponseDTO;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface ShiftOfferRepository extends JpaRepository<ShiftOffer, Long> {
+    // two queries rather than an optional city predicate, so each gets a plan on its own index;
+    // the keyset bounds are the same as in ShiftRepository.findWindowAfter
+    @Query("""
+            select new com.example.loginauthapi.dto.market.ShiftOfferResponseDTO(o.id, o.startTime, o.endTime, o.value, o.location,
+                   o.state, o.city, o.professionalType, o.status)
+            from ShiftOffer o
+            where o.status = com.example.loginauthapi.domain.market.ShiftOfferStatus.OPEN
+              and o.state = :state and o.professionalType = :professionalType
+              and o.startTime >= :from and o.startTime < :to
+              and o.startTime >= :afterStart
+              and (o.startTime > :afterStart or o.id > :afterId)
+              and o.poster.id <> :userId
+            order by o.startTime, o.id
+            """)
+    List<ShiftOfferResponseDTO> findOpenInState(String userId, String state, int professionalType, LocalDateTime from, LocalDateTime to,
+                                                LocalDateTime afterStart, long afterId, Limit limit);
+
+    @Query("""
+            select new com.example.loginauthapi.dto.market.ShiftOfferResponseDTO(o.id, o.startTime, o.endTime, o.value, o.location,
+                   o.state, o.city, o.professionalType, o.status)
+            from ShiftOffer o
+            where o.status = com.example.loginauthapi.domain.market.ShiftOfferStatus.OPEN
+              and o.state = :state and o.professionalType = :professionalType and o.city = :city
+              and o.startTime >= :from and o.startTime < :to
+              and o.startTime >= :afterStart
+              and (o.startTime > :afterStart or o.id > :afterId)
+              and o.poster.id <> :userId
+            order by o.startTime, o.id
+            """)
+    List<ShiftOfferResponseDTO> findOpenInCity(String userId, String state, String city, int professionalType, LocalDateTime from, LocalDateTime to,
+                                               LocalDateTime afterStart, long afterId, Limit limit);
+}
@@ -2,10 +2,200 @@ package com.example.loginauthapi.repositories;
 
 import com.example.loginauthapi.domain.shift.Shift;
 import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.dto.shift.ShiftChangeDTO;
+import com.example.loginauthapi.dto.shift.ShiftOccurrenceDTO;
+import com.example.loginauthapi.dto.shift.ShiftResponseDTO;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ShiftRepository extends JpaRepository<Shift, Long> {
+    // cached queries are dropped whenever anything writes to the shift table, native statements included, and are
+    // inert while the L2 cache is off
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("select s from Shift s where s.user = :user and s.cancelled = false")
     List<Shift> findByUser(User user);
+
+    // constructor projections are never managed, so nothing is hydrated or tracked and the user row is not joined
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
+    @Query("""
+            select new com.example.loginauthapi.dto.shift.ShiftResponseDTO(s.id, s.startTime, s.endTime, s.value, s.location)
+            from Shift s
+            where s.user.id = :userId and s.cancelled = false
+            """)
+    List<ShiftResponseDTO> findResponsesByUserId(String userId);
+
+    // the redundant startTime >= afterStart bound lets the (user_id, start_time) index seek straight to the cursor
+    @Query("""
+            select new com.example.loginauthapi.dto.shift.ShiftResponseDTO(s.id, s.startTime, s.endTime, s.value, s.location)
+            from Shift s
+            where s.user.id = :userId and s.cancelled = false
+              and s.startTime >= :from and s.startTime < :to
+              and s.startTime >= :afterStart
+              and (s.startTime > :afterStart or s.id > :afterId)
+            order by s.startTime, s.id
+            """)
+    List<ShiftResponseDTO> findWindowAfter(String userId, LocalDateTime from, LocalDateTime to, LocalDateTime afterStart, long afterId, Limit limit);
+
+    // postgres only honours the fetch size inside a transaction; outside one the driver buffers the whole result
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("""
+            select new com.example.loginauthapi.dto.shift.ShiftResponseDTO(s.id, s.startTime, s.endTime, s.value, s.location)
+            from Shift s
+            where s.user.id = :userId and s.cancelled = false
+              and s.startTime >= :from and s.startTime < :to
+            order by s.startTime, s.id
+            """)
+    Stream<ShiftResponseDTO> streamByUserId(String userId, LocalDateTime from, LocalDateTime to);
+
+    // same keyset shape as findWindowAfter, served by the (user_id, sync_version, id) index
+    @Query("""
+            select new com.example.loginauthapi.dto.shift.ShiftChangeDTO(s.id, s.syncVersion, s.cancelled, s.updatedAt, s.startTime, s.endTime, s.value, s.location)
+            from Shift s
+            where s.user.id = :userId
+              and (s.cancelled = false or :includeTombstones = true)
+              and s.syncVersion >= :afterVersion
+              and (s.syncVersion > :afterVersion or s.id > :afterId)
+            order by s.syncVersion, s.id
+            """)
+    List<ShiftChangeDTO> findChangesAfter(String userId, long afterVersion, long afterId, boolean includeTombstones, Limit limit);
+
+    // grouped by ordinal because every :param occurrence binds separately and postgres would not match the expressions
+    @Query(nativeQuery = true, value = """
+            select date_trunc(:unit, s.start_time) as period,
+                   case when :byLocation then s.location end as location,
+                   count(*) as shiftCount,
+                   coalesce(sum(extract(epoch from (s.end_time - s.start_time))) / 3600, 0) as totalHours,
+                   coalesce(sum(s.value), 0) as totalValue
+            from shift s
+            where s.user_id = :userId and not s.cancelled
+              and s.start_time >= :from and s.start_time < :to
+            group by 1, 2
+            order by 1, 2
+            """)
+    List<ShiftSummaryView> summarize(String userId, LocalDateTime from, LocalDateTime to, String unit, boolean byLocation);
+
+    @Query("""
+            select new com.example.loginauthapi.dto.shift.ShiftOccurrenceDTO(s.id, s.template.id, s.occurrenceDate, s.startTime, s.endTime, s.value, s.location)
+            from Shift s
+            where s.user.id = :userId and s.cancelled = false
+              and s.startTime >= :from and s.startTime < :to
+            order by s.startTime, s.id
+            """)
+    List<ShiftOccurrenceDTO> findOccurrencesInWindow(String userId, LocalDateTime from, LocalDateTime to);
+
+    // backward index probe on (user_id, start_time): postgres turns max() into an ORDER BY ... DESC LIMIT 1
+    @Query("select max(s.startTime) from Shift s where s.user.id = :userId and s.cancelled = false and s.startTime <= :at")
+    LocalDateTime findLatestStartAtOrBefore(String userId, LocalDateTime at);
+
+    @Query("""
+            select new com.example.loginauthapi.dto.shift.ShiftOccurrenceDTO(s.id, s.template.id, s.occurrenceDate, s.startTime, s.endTime, s.value, s.location)
+            from Shift s
+            where s.user.id = :userId and s.cancelled = false
+              and s.startTime >= :lowerBound and s.startTime < :to
+              and s.endTime > :from
+            order by s.startTime, s.id
+            """)
+    List<ShiftOccurrenceDTO> findOverlapping(String userId, LocalDateTime lowerBound, LocalDateTime from, LocalDateTime to);
+
+    // overrides and cancellations both count: either way the template must not expand that date again
+    @Query("""
+            select new com.example.loginauthapi.repositories.TemplateOccurrenceKey(s.template.id, s.occurrenceDate)
+            from Shift s
+            where s.template.id in :templateIds
+              and s.occurrenceDate between :fromDate and :toDate
+            """)
+    List<TemplateOccurrenceKey> findMaterializedOccurrences(Collection<Long> templateIds, LocalDate fromDate, LocalDate toDate);
+
+    Optional<Shift> findByTemplateIdAndOccurrenceDate(Long templateId, LocalDate occurrenceDate);
+
+    // a bulk update skips @UpdateTimestamp, so updatedAt is set here along with the version of the delete
+    @Modifying
+    @Query("""
+            update Shift s set s.template = null, s.occurrenceDate = null, s.syncVersion = :syncVersion, s.updatedAt = local datetime
+            where s.template.id = :templateId
+            """)
+    void detachFromTemplate(Long templateId, long syncVersion);
+
+    // moves one month out of the live table, packed into one shift_archive row per user; tombstones only matter to
+    // the change feed and are dropped. Appending to an existing row covers shifts a previous run missed. Every user
+    // who lost shifts gets a new shifts version, which changes their ETags and tells the change feed to report it.
+    // The live shifts that were counted into a location are taken back out of its rollup, as LocationLedger.release
+    // would; the rollup reads the bumped users first, so their rows are locked before any location, in the same
+    // order a write under ShiftService.lockOwner takes them
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(nativeQuery = true, value = """
+            with moved as (
+                delete from shift s
+                where s.start_time >= :monthStart and s.start_time < :monthEnd
+                returning s.*
+            ), bumped as (
+                update users u
+                set shifts_version = u.shifts_version + 1,
+                    archived_version = u.shifts_version + 1,
+                    archived_before = greatest(u.archived_before, :monthEnd)
+                where u.id in (select m.user_id from moved m)
+                returning u.id
+            ), released as (
+                update location l
+                set shift_count = l.shift_count - r.shift_count,
+                    total_seconds = l.total_seconds - r.total_seconds,
+                    total_value = l.total_value - r.total_value
+                from (select m.location_id, count(*) as shift_count,
+                             sum(floor(extract(epoch from m.end_time - m.start_time))) as total_seconds,
+                             sum(m.value) as total_value
+                      from moved m
+                      join bumped b on b.id = m.user_id
+                      where not m.cancelled and m.location_id is not null
+                      group by m.location_id) r
+                where l.id = r.location_id
+            )
+            insert into shift_archive (user_id, month, shift_count, shifts, archived_at)
+            select m.user_id, cast(:monthStart as date), count(*),
+                   jsonb_agg(jsonb_build_object('id', m.id, 'template_id', m.template_id, 'occurrence_date', m.occurrence_date,
+                                                'start_time', m.start_time, 'end_time', m.end_time, 'value', m.value,
+                                                'location', m.location)
+                             order by m.start_time, m.id),
+                   localtimestamp
+            from moved m
+            where not m.cancelled
+            group by m.user_id
+            on conflict (user_id, month) do update
+                set shift_count = shift_archive.shift_count + excluded.shift_count,
+                    shifts = shift_archive.shifts || excluded.shifts,
+                    archived_at = excluded.archived_at
+            """)
+    int archiveMonth(LocalDateTime monthStart, LocalDateTime monthEnd);
+
+    @Query(nativeQuery = true, value = "select exists (select 1 from shift_archived_month where month = :month)")
+    boolean isMonthArchived(LocalDate month);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into shift_archived_month (month, archived_at) values (:month, localtimestamp) on conflict do nothing")
+    void markMonthArchived(LocalDate month);
+
+    // the primary key narrows it to the user's months, and only those rows are unpacked
+    @Query(nativeQuery = true, value = """
+            select e.id as id, e.template_id as templateId, e.occurrence_date as occurrenceDate,
+                   e.start_time as startTime, e.end_time as endTime, e.value as value, e.location as location
+            from shift_archive a
+            cross join lateral jsonb_to_recordset(a.shifts) as e(id bigint, template_id bigint, occurrence_date date,
+                                                                 start_time timestamp, end_time timestamp,
+                                                                 value float8, location text)
+            where a.user_id = :userId and a.month >= :fromMonth and a.month < :to
+              and e.start_time >= :from and e.start_time < :to
+            order by e.start_time, e.id
+            """)
+    List<ShiftArchiveView> findArchived(String userId, LocalDate fromMonth, LocalDateTime from, LocalDateTime to);
 }
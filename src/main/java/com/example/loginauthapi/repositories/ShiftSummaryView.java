@@ -0,0 +1,11 @@
+package com.example.loginauthapi.repositories;
+
+import java.time.LocalDateTime;
+
+public interface ShiftSummaryView {
+    LocalDateTime getPeriod();
+    String getLocation();
+    Long getShiftCount();
+    Double getTotalHours();
+    Double getTotalValue();
+}
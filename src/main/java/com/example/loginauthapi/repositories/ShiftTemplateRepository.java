@@ -0,0 +1,43 @@
+package com.example.loginauthapi.repositories;
+
+import com.example.loginauthapi.domain.shift.ShiftTemplate;
+import com.example.loginauthapi.dto.shift.ShiftTemplateChangeDTO;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface ShiftTemplateRepository extends JpaRepository<ShiftTemplate, Long> {
+    List<ShiftTemplate> findByUserIdAndDeletedFalse(String userId);
+
+    Optional<ShiftTemplate> findByIdAndDeletedFalse(long id);
+
+    @Query("""
+            select t from ShiftTemplate t
+            where t.user.id = :userId and t.deleted = false
+              and t.startDate <= :toDate
+              and (t.endDate is null or t.endDate >= :fromDate)
+            """)
+    List<ShiftTemplate> findActive(String userId, LocalDate fromDate, LocalDate toDate);
+
+    @Query("""
+            select distinct t.user.id from ShiftTemplate t
+            where t.deleted = false
+              and t.startDate <= :toDate
+              and (t.endDate is null or t.endDate >= :fromDate)
+            """)
+    List<String> findUserIdsActive(LocalDate fromDate, LocalDate toDate);
+
+    // a user has a handful of templates, so the feed takes every change in the version range instead of paging them
+    @Query("""
+            select new com.example.loginauthapi.dto.shift.ShiftTemplateChangeDTO(t.id, t.syncVersion, t.deleted)
+            from ShiftTemplate t
+            where t.user.id = :userId
+              and (t.deleted = false or :includeTombstones = true)
+              and t.syncVersion > :afterVersion and t.syncVersion <= :upToVersion
+            order by t.syncVersion, t.id
+            """)
+    List<ShiftTemplateChangeDTO> findChanges(String userId, long afterVersion, long upToVersion, boolean includeTombstones);
+}
@@ -0,0 +1,6 @@
+package com.example.loginauthapi.repositories;
+
+import java.time.LocalDate;
+
+public record TemplateOccurrenceKey(Long templateId, LocalDate occurrenceDate) {
+}
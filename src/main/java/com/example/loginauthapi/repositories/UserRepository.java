@@ -1,10 +1,28 @@
 package com.example.loginauthapi.repositories;
 
 import com.example.loginauthapi.domain.user.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, String> {
-    Optional<User> findByEmail(String email);
+    @Transactional(readOnly = true)
+    Optional<User> findByNormalizedEmail(String normalizedEmail);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from User u where u.id = :id")
+    Optional<User> findByIdForUpdate(String id);
+
+    @Modifying
+    @Query("update User u set u.password = :password where u.id = :id")
+    void updatePassword(String id, String password);
+
+    @Transactional(readOnly = true)
+    @Query("select u.shiftsVersion from User u where u.id = :id")
+    Optional<Long> findShiftsVersion(String id);
 }
@@ -0,0 +1,72 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.location.Location;
+import com.example.loginauthapi.domain.shift.Shift;
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.repositories.LocationRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * The owner's locations for the length of one write, so a batch resolves every name against a single query.
+ * Rollups are read-modify-write on managed entities and flushed together with the shifts; the caller holds the
+ * owner's row lock from {@link ShiftService#lockOwner}, which is what keeps concurrent writes from losing updates.
+ */
+public class LocationLedger {
+
+    private final User owner;
+    private final LocationRepository locationRepository;
+    private Map<String, Location> byName;
+
+    LocationLedger(User owner, LocationRepository locationRepository) {
+        this.owner = owner;
+        this.locationRepository = locationRepository;
+    }
+
+    // takes the shift out of its location's rollup; call before changing or cancelling it
+    public void release(Shift shift) {
+        if (shift.isCancelled() || shift.getLocationRef() == null) return;
+        adjust(shift.getLocationRef(), shift, -1);
+    }
+
+    // points the shift at the location its text names, creating the location on first use, and counts it in
+    public void assign(Shift shift) {
+        if (shift.isCancelled()) return;
+        String normalizedName = LocationService.normalize(shift.getLocation());
+        Location location = locations().get(normalizedName);
+        if (location == null) {
+            location = create(shift.getLocation().trim(), normalizedName);
+            byName.put(normalizedName, location);
+        }
+        location.setLastUsedAt(LocalDateTime.now());
+        shift.setLocationRef(location);
+        adjust(location, shift, 1);
+    }
+
+    private Map<String, Location> locations() {
+        if (byName == null) {
+            byName = locationRepository.findByUserId(owner.getId()).stream()
+                    .collect(Collectors.toMap(Location::getNormalizedName, Function.identity()));
+        }
+        return byName;
+    }
+
+    private Location create(String name, String normalizedName) {
+        Location location = new Location();
+        location.setUser(owner);
+        location.setName(name);
+        location.setNormalizedName(normalizedName);
+        location.setLastUsedAt(LocalDateTime.now());
+        return locationRepository.save(location);
+    }
+
+    private static void adjust(Location location, Shift shift, int sign) {
+        location.setShiftCount(location.getShiftCount() + sign);
+        location.setTotalSeconds(location.getTotalSeconds() + sign * Duration.between(shift.getStartTime(), shift.getEndTime()).toSeconds());
+        location.setTotalValue(location.getTotalValue() + sign * shift.getValue());
+    }
+}
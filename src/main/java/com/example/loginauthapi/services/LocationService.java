@@ -0,0 +1,48 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.dto.location.LocationResponseDTO;
+import com.example.loginauthapi.dto.location.LocationStatsDTO;
+import com.example.loginauthapi.repositories.LocationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+@Service
+public class LocationService {
+
+    public static final int DEFAULT_SUGGESTIONS = 10;
+    public static final int MAX_SUGGESTIONS = 50;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    @Autowired
+    LocationRepository locationRepository;
+
+    @Transactional(readOnly = true)
+    public List<LocationResponseDTO> suggest(String userId, String prefix, int limit) {
+        int size = Math.min(Math.max(limit, 1), MAX_SUGGESTIONS);
+        String normalized = prefix == null ? "" : normalize(prefix);
+        String pattern = normalized.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return locationRepository.findRecentByPrefix(userId, pattern, Limit.of(size));
+    }
+
+    @Transactional(readOnly = true)
+    public List<LocationStatsDTO> findStats(String userId) {
+        return locationRepository.findWithShifts(userId).stream().map(LocationStatsDTO::from).toList();
+    }
+
+    // the owner must come from ShiftService.lockOwner in the same transaction
+    public LocationLedger ledger(User owner) {
+        return new LocationLedger(owner, locationRepository);
+    }
+
+    // kept in step with the normalization in the V2 migration
+    public static String normalize(String name) {
+        return WHITESPACE.matcher(name).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+}
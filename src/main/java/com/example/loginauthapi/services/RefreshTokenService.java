@@ -0,0 +1,100 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.auth.RefreshToken;
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.repositories.RefreshTokenRepository;
+import com.example.loginauthapi.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+public class RefreshTokenService {
+    private static final Logger log = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    @Autowired
+    RefreshTokenRepository refreshTokenRepository;
+    @Autowired
+    UserRepository userRepository;
+
+    @Value("${api.security.refresh-token.ttl:30d}")
+    private Duration ttl;
+
+    public record Rotation(User user, String refreshToken) { }
+
+    // starts a new family; expired tokens are pruned by TokenRevocationService along with the revoked access tokens
+    @Transactional
+    public String issue(String userId) {
+        return create(userRepository.getReferenceById(userId), UUID.randomUUID().toString(), Instant.now());
+    }
+
+    // exchanges a refresh token for a new one in the same family; the old one is kept, marked as used, so that
+    // presenting it again is recognised as reuse and the whole family is revoked
+    @Transactional(noRollbackFor = ResponseStatusException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken current = find(rawToken).orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+        Instant now = Instant.now();
+        if (current.isRevoked()) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        if (current.getUsedAt() != null) {
+            log.warn("Refresh token reuse detected for user {}, revoking family {}", current.getUser().getId(), current.getFamily());
+            refreshTokenRepository.revokeFamily(current.getFamily());
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        }
+        if (!current.getExpiresAt().isAfter(now)) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+
+        current.setUsedAt(now);
+        return new Rotation(current.getUser(), create(current.getUser(), current.getFamily(), now));
+    }
+
+    // logout ends the whole family, not only the latest token, so an earlier copy cannot be replayed either
+    @Transactional
+    public void revoke(String rawToken) {
+        find(rawToken).ifPresent(token -> refreshTokenRepository.revokeFamily(token.getFamily()));
+    }
+
+    private Optional<RefreshToken> find(String rawToken) {
+        if (rawToken == null || rawToken.isBlank()) return Optional.empty();
+        return refreshTokenRepository.findByTokenHashForUpdate(hash(rawToken));
+    }
+
+    private String create(User user, String family, Instant now) {
+        byte[] bytes = new byte[32];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        RefreshToken token = new RefreshToken();
+        token.setTokenHash(hash(rawToken));
+        token.setFamily(family);
+        token.setCreatedAt(now);
+        token.setExpiresAt(now.plus(ttl));
+        token.setUser(user);
+        refreshTokenRepository.save(token);
+        return rawToken;
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.shift.Shift;
+import com.example.loginauthapi.dto.shift.ShiftOccurrenceDTO;
+import com.example.loginauthapi.infra.persistence.ShiftPartitions;
+import com.example.loginauthapi.repositories.ShiftRepository;
+import com.example.loginauthapi.repositories.ShiftTemplateRepository;
+import com.example.loginauthapi.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the shift table down to the months within the archive horizon. On a fixed delay it gives the coming months
+ * their partitions, and moves every month past the horizon into shift_archive before dropping its partition, which
+ * takes the month's dead rows with it instead of leaving them to vacuum. Template occurrences that were never
+ * stored are written out with the month, so the archive holds the month as it was scheduled.
+ */
+@Service
+public class ShiftArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(ShiftArchiveService.class);
+
+    @Autowired
+    ShiftPartitions shiftPartitions;
+    @Autowired
+    ShiftRepository shiftRepository;
+    @Autowired
+    ShiftTemplateRepository shiftTemplateRepository;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    ShiftTemplateExpander shiftTemplateExpander;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    // every node keeps its view of the partitions current; only the enabled ones change them, one at a time
+    @Value("${api.shifts.archive.enabled:true}")
+    private boolean enabled;
+    @Value("${api.shifts.archive.interval:10m}")
+    private Duration interval;
+
+    private ScheduledExecutorService maintainer;
+
+    @PostConstruct
+    void init() {
+        this.maintainer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "shift-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintainer.scheduleWithFixedDelay(this::maintain, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void close() {
+        maintainer.shutdownNow();
+    }
+
+    @Transactional(readOnly = true)
+    public List<ShiftOccurrenceDTO> findHistory(String userId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) throw new IllegalArgumentException("from must be before to");
+        if (Duration.between(from, to).compareTo(ShiftService.MAX_CALENDAR_WINDOW) > 0) throw new IllegalArgumentException("window too large");
+
+        return shiftRepository.findArchived(userId, from.toLocalDate().withDayOfMonth(1), from, to).stream()
+                .map(row -> new ShiftOccurrenceDTO(row.getId(), row.getTemplateId(), row.getOccurrenceDate(), row.getStartTime(),
+                        row.getEndTime(), row.getValue(), row.getLocation()))
+                .toList();
+    }
+
+    void maintain() {
+        try {
+            if (enabled) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (shiftPartitions.tryLock()) shiftPartitions.createAhead();
+                });
+                YearMonth cutoff = shiftPartitions.cutoff();
+                for (YearMonth month : shiftPartitions.months()) {
+                    if (!month.isBefore(cutoff) || !archive(month)) break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Shift partition maintenance failed, retrying in {}", interval, e);
+        }
+        try {
+            shiftPartitions.refresh();
+        } catch (RuntimeException e) {
+            log.warn("Could not refresh the shift partitions, keeping the current view", e);
+        }
+    }
+
+    // the move and the drop are separate transactions so the table lock of the drop is held for an empty partition
+    // only; a month that another node is working on, or that could not be dropped yet, is picked up on the next run.
+    // The occurrences are written out on the first move only: once they are in the archive the expander would find
+    // the month empty and hand them out again, cancelled and overridden dates included
+    boolean archive(YearMonth month) {
+        LocalDateTime from = ShiftPartitions.start(month);
+        LocalDateTime to = ShiftPartitions.start(month.plusMonths(1));
+
+        Integer userMonths = transactionTemplate.execute(status -> {
+            if (!shiftPartitions.tryLock()) return null;
+            if (!shiftRepository.isMonthArchived(from.toLocalDate())) {
+                materializeOccurrences(from, to);
+                shiftRepository.markMonthArchived(from.toLocalDate());
+            }
+            return shiftRepository.archiveMonth(from, to);
+        });
+        if (userMonths == null) return false;
+
+        boolean dropped = Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                shiftPartitions.tryLock() && shiftPartitions.dropOldest(month)));
+        if (dropped) shiftPartitions.refresh();
+        log.info("Archived the shifts of {} into {} user months, partition dropped: {}", month, userMonths, dropped);
+        return dropped;
+    }
+
+    private void materializeOccurrences(LocalDateTime from, LocalDateTime to) {
+        List<Shift> occurrences = new ArrayList<>();
+        for (String userId : shiftTemplateRepository.findUserIdsActive(from.toLocalDate(), to.toLocalDate())) {
+            for (ShiftOccurrenceDTO occurrence : shiftTemplateExpander.expand(userId, from, to)) {
+                Shift shift = new Shift();
+                shift.setUser(userRepository.getReferenceById(userId));
+                shift.setTemplate(shiftTemplateRepository.getReferenceById(occurrence.templateId()));
+                shift.setOccurrenceDate(occurrence.occurrenceDate());
+                shift.setStartTime(occurrence.startTime());
+                shift.setEndTime(occurrence.endTime());
+                shift.setValue(occurrence.value());
+                shift.setLocation(occurrence.location());
+                occurrences.add(shift);
+            }
+        }
+        shiftRepository.saveAll(occurrences);
+    }
+}
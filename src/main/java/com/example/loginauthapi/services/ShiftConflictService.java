@@ -0,0 +1,46 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.dto.shift.ShiftOccurrenceDTO;
+import com.example.loginauthapi.repositories.ShiftRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+@Service
+public class ShiftConflictService {
+
+    @Autowired
+    ShiftRepository shiftRepository;
+    @Autowired
+    ShiftTemplateExpander shiftTemplateExpander;
+
+    public List<ShiftOccurrenceDTO> findConflicts(String userId, LocalDateTime from, LocalDateTime to) {
+        return findConflicts(userId, from, to, occurrence -> false);
+    }
+
+    public List<ShiftOccurrenceDTO> findConflicts(String userId, LocalDateTime from, LocalDateTime to, Predicate<ShiftOccurrenceDTO> ignored) {
+        // stored shifts never overlap each other (every write goes through this check), so the only one that can
+        // start before `from` and still overlap is the latest one starting at or before it; everything else starts
+        // inside [from, to) and the scan stays an index range of O(log n + k)
+        LocalDateTime anchor = shiftRepository.findLatestStartAtOrBefore(userId, from);
+        List<ShiftOccurrenceDTO> conflicts = new ArrayList<>(shiftRepository.findOverlapping(userId, anchor == null ? from : anchor, from, to));
+
+        // template occurrences are bounded in length, so only those starting shortly before `from` can reach into it
+        shiftTemplateExpander.expand(userId, from.minusMinutes(ShiftTemplateService.MAX_DURATION_MINUTES), to).stream()
+                .filter(occurrence -> overlaps(occurrence, from, to))
+                .forEach(conflicts::add);
+
+        conflicts.removeIf(ignored);
+        conflicts.sort(Comparator.comparing(ShiftOccurrenceDTO::startTime));
+        return conflicts;
+    }
+
+    public static boolean overlaps(ShiftOccurrenceDTO occurrence, LocalDateTime from, LocalDateTime to) {
+        return occurrence.startTime().isBefore(to) && occurrence.endTime().isAfter(from);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.market.ShiftOffer;
+import com.example.loginauthapi.domain.market.ShiftOfferStatus;
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.dto.market.ShiftOfferPageResponseDTO;
+import com.example.loginauthapi.dto.market.ShiftOfferRequestDTO;
+import com.example.loginauthapi.dto.market.ShiftOfferResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftRequestDTO;
+import com.example.loginauthapi.dto.shift.ShiftResponseDTO;
+import com.example.loginauthapi.repositories.ShiftOfferRepository;
+import com.example.loginauthapi.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+@Service
+public class ShiftMarketService {
+
+    @Autowired
+    ShiftOfferRepository shiftOfferRepository;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    ShiftService shiftService;
+
+    @Transactional
+    public ShiftOfferResponseDTO post(String userId, ShiftOfferRequestDTO request) {
+        boolean valid = request.startTime() != null && request.endTime() != null && request.location() != null
+                && request.startTime().isBefore(request.endTime()) && request.startTime().isAfter(LocalDateTime.now());
+        if (!valid) throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        User poster = findUser(userId);
+        // without a region the offer could never be found
+        if (isBlank(poster.getState()) || isBlank(poster.getCity())) throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+
+        ShiftOffer offer = new ShiftOffer();
+        offer.setPoster(poster);
+        offer.setStartTime(request.startTime());
+        offer.setEndTime(request.endTime());
+        offer.setValue(request.value());
+        offer.setLocation(request.location());
+        offer.setState(normalizeState(poster.getState()));
+        offer.setCity(normalizeCity(poster.getCity()));
+        offer.setProfessionalType(poster.getProfessionalType());
+        offer.setStatus(ShiftOfferStatus.OPEN);
+        offer.setCreatedAt(LocalDateTime.now());
+        return ShiftOfferResponseDTO.from(shiftOfferRepository.save(offer));
+    }
+
+    // region and professional type default to the caller's own, which is who the market is meant for
+    @Transactional(readOnly = true)
+    public ShiftOfferPageResponseDTO search(String userId, String state, String city, Integer professionalType,
+                                            LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        if (!from.isBefore(to)) throw new IllegalArgumentException("from must be before to");
+        int pageSize = Math.min(Math.max(limit, 1), ShiftService.MAX_PAGE_SIZE);
+
+        if (state == null || professionalType == null) {
+            User user = findUser(userId);
+            if (state == null) state = user.getState();
+            if (professionalType == null) professionalType = user.getProfessionalType();
+        }
+        if (isBlank(state)) throw new IllegalArgumentException("state is required");
+
+        ShiftCursor after = cursor == null ? new ShiftCursor(from, -1) : ShiftCursor.decode(cursor);
+        List<ShiftOfferResponseDTO> offers = isBlank(city)
+                ? shiftOfferRepository.findOpenInState(userId, normalizeState(state), professionalType, from, to,
+                        after.startTime(), after.id(), Limit.of(pageSize + 1))
+                : shiftOfferRepository.findOpenInCity(userId, normalizeState(state), normalizeCity(city), professionalType, from, to,
+                        after.startTime(), after.id(), Limit.of(pageSize + 1));
+
+        if (offers.size() <= pageSize) return new ShiftOfferPageResponseDTO(offers, null);
+
+        List<ShiftOfferResponseDTO> page = offers.subList(0, pageSize);
+        ShiftOfferResponseDTO last = page.get(pageSize - 1);
+        return new ShiftOfferPageResponseDTO(page, new ShiftCursor(last.startTime(), last.id()).encode());
+    }
+
+    // no lock is taken on the offer: the flush issues an update conditional on the version that was read, and a
+    // concurrent claim or withdrawal that committed first makes it fail with an OptimisticLockingFailureException;
+    // the claimed shift is then created like any other, so an overlap with the claimer's own shifts rolls the claim back
+    @Transactional
+    public ShiftResponseDTO claim(String userId, long offerId) {
+        ShiftOffer offer = shiftOfferRepository.findById(offerId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (offer.getStatus() != ShiftOfferStatus.OPEN || !offer.getStartTime().isAfter(LocalDateTime.now())) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        }
+        if (offer.getPoster().getId().equals(userId)) throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        User claimer = findUser(userId);
+        if (claimer.getProfessionalType() != offer.getProfessionalType()) throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+
+        offer.setStatus(ShiftOfferStatus.CLAIMED);
+        offer.setClaimedBy(claimer);
+        offer.setClaimedAt(LocalDateTime.now());
+        shiftOfferRepository.flush();
+
+        return shiftService.create(userId, new ShiftRequestDTO(offer.getStartTime(), offer.getEndTime(), offer.getValue(), offer.getLocation()));
+    }
+
+    @Transactional
+    public void withdraw(String userId, long offerId) {
+        ShiftOffer offer = shiftOfferRepository.findById(offerId).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (!offer.getPoster().getId().equals(userId)) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        if (offer.getStatus() != ShiftOfferStatus.OPEN) throw new ResponseStatusException(HttpStatus.CONFLICT);
+        offer.setStatus(ShiftOfferStatus.WITHDRAWN);
+        shiftOfferRepository.flush();
+    }
+
+    private User findUser(String userId) {
+        return userRepository.findById(userId).orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static String normalizeState(String state) {
+        return state.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String normalizeCity(String city) {
+        return LocationService.normalize(city);
+    }
+}
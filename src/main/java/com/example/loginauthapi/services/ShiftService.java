@@ -2,36 +2,387 @@ package com.example.loginauthapi.services;
 
 import com.example.loginauthapi.domain.shift.Shift;
 import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.dto.shift.ShiftBatchItemResultDTO;
+import com.example.loginauthapi.dto.shift.ShiftBatchOperation;
+import com.example.loginauthapi.dto.shift.ShiftBatchRequestDTO;
+import com.example.loginauthapi.dto.shift.ShiftBatchUpdateDTO;
+import com.example.loginauthapi.dto.shift.ShiftChangeDTO;
+import com.example.loginauthapi.dto.shift.ShiftChangesResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftOccurrenceDTO;
+import com.example.loginauthapi.dto.shift.ShiftPageResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftRequestDTO;
+import com.example.loginauthapi.dto.shift.ShiftResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftSummaryDTO;
+import com.example.loginauthapi.dto.shift.ShiftSummaryGranularity;
+import com.example.loginauthapi.dto.shift.ShiftTemplateChangeDTO;
+import com.example.loginauthapi.infra.persistence.ShiftPartitions;
 import com.example.loginauthapi.repositories.ShiftRepository;
+import com.example.loginauthapi.repositories.ShiftSummaryView;
+import com.example.loginauthapi.repositories.ShiftTemplateRepository;
+import com.example.loginauthapi.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class ShiftService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 200;
+    public static final Duration MAX_CALENDAR_WINDOW = Duration.ofDays(366);
+
     @Autowired
     ShiftRepository shiftRepository;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    ShiftTemplateRepository shiftTemplateRepository;
+    @Autowired
+    ShiftTemplateExpander shiftTemplateExpander;
+    @Autowired
+    ShiftConflictService shiftConflictService;
+    @Autowired
+    LocationService locationService;
+    @Autowired
+    ShiftPartitions shiftPartitions;
 
+    @Transactional(readOnly = true)
     public List<Shift> findAll() {
         return shiftRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
     public Optional<Shift> findById(Long id) {
         return shiftRepository.findById(id);
     }
 
+    @Transactional(readOnly = true)
     public List<Shift> findByUser(User user) {
         return shiftRepository.findByUser(user);
     }
 
-    public Shift save(Shift shift) {
-        return shiftRepository.save(shift);
+    @Transactional(readOnly = true)
+    public String findVersionTag(String userId) {
+        long version = userRepository.findShiftsVersion(userId).orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+        return "\"" + version + "\"";
+    }
+
+    @Transactional(readOnly = true)
+    public List<ShiftResponseDTO> findResponsesByUser(String userId) {
+        return shiftRepository.findResponsesByUserId(userId);
+    }
+
+    @Transactional(readOnly = true)
+    public ShiftPageResponseDTO findWindow(String userId, LocalDateTime from, LocalDateTime to, String cursor, int limit) {
+        if (!from.isBefore(to)) throw new IllegalArgumentException("from must be before to");
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        ShiftCursor after = cursor == null ? new ShiftCursor(from, -1) : ShiftCursor.decode(cursor);
+        List<ShiftResponseDTO> shifts = shiftRepository.findWindowAfter(userId, from, to, after.startTime(), after.id(), Limit.of(pageSize + 1));
+
+        if (shifts.size() <= pageSize) return new ShiftPageResponseDTO(shifts, null);
+
+        List<ShiftResponseDTO> page = shifts.subList(0, pageSize);
+        ShiftResponseDTO last = page.get(pageSize - 1);
+        return new ShiftPageResponseDTO(page, new ShiftCursor(last.startTime(), last.id()).encode());
+    }
+
+    // versions are taken under the owner's row lock, so they commit in order and every snapshot sees a gap-free prefix;
+    // without a cursor this is the initial download and tombstones of shifts the client never had are left out
+    @Transactional(readOnly = true)
+    public ShiftChangesResponseDTO findChanges(String userId, String cursor, int limit) {
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+
+        ShiftSyncCursor after = cursor == null ? ShiftSyncCursor.INITIAL : ShiftSyncCursor.decode(cursor);
+        List<ShiftChangeDTO> changes = shiftRepository.findChangesAfter(userId, after.version(), after.id(), cursor != null, Limit.of(pageSize + 1));
+
+        boolean hasMore = changes.size() > pageSize;
+        if (hasMore) changes = changes.subList(0, pageSize);
+        ShiftSyncCursor next = changes.isEmpty() ? after : new ShiftSyncCursor(changes.get(changes.size() - 1).version(), changes.get(changes.size() - 1).id());
+
+        // template changes come with the shift versions they are interleaved with, so a page that stops early only
+        // carries those up to its last version; on the last page a later template change moves the cursor past itself
+        List<ShiftTemplateChangeDTO> templateChanges = shiftTemplateRepository.findChanges(userId, after.version(),
+                hasMore ? next.version() : Long.MAX_VALUE, cursor != null);
+        if (!templateChanges.isEmpty()) {
+            long templateVersion = templateChanges.get(templateChanges.size() - 1).version();
+            if (templateVersion > next.version()) next = new ShiftSyncCursor(templateVersion, Long.MAX_VALUE);
+        }
+
+        // archived shifts leave no tombstones, so a client that synced before the archive is told where it ended
+        // instead, until its cursor has moved past the archive's version
+        LocalDateTime archivedBefore = null;
+        User owner = cursor == null ? null : userRepository.findById(userId).orElse(null);
+        if (owner != null && owner.getArchivedVersion() > after.version()) {
+            archivedBefore = owner.getArchivedBefore();
+            if (!hasMore && owner.getArchivedVersion() > next.version()) next = new ShiftSyncCursor(owner.getArchivedVersion(), Long.MAX_VALUE);
+        }
+        return new ShiftChangesResponseDTO(changes, templateChanges, archivedBefore, next.encode(), hasMore);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ShiftOccurrenceDTO> findCalendar(String userId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) throw new IllegalArgumentException("from must be before to");
+        if (Duration.between(from, to).compareTo(MAX_CALENDAR_WINDOW) > 0) throw new IllegalArgumentException("window too large");
+
+        List<ShiftOccurrenceDTO> occurrences = new ArrayList<>(shiftRepository.findOccurrencesInWindow(userId, from, to));
+        occurrences.addAll(shiftTemplateExpander.expand(userId, from, to));
+        occurrences.sort(Comparator.comparing(ShiftOccurrenceDTO::startTime));
+        return occurrences;
+    }
+
+    @Transactional(readOnly = true)
+    public List<ShiftSummaryDTO> summarize(String userId, LocalDateTime from, LocalDateTime to, ShiftSummaryGranularity granularity, boolean byLocation) {
+        if (!from.isBefore(to)) throw new IllegalArgumentException("from must be before to");
+
+        Map<SummaryKey, ShiftSummaryDTO> totals = new LinkedHashMap<>();
+        for (ShiftSummaryView row : shiftRepository.summarize(userId, from, to, granularity.truncationUnit(), byLocation)) {
+            SummaryKey key = new SummaryKey(row.getPeriod().toLocalDate(), row.getLocation());
+            totals.put(key, new ShiftSummaryDTO(key.periodStart(), key.location(), row.getShiftCount(), row.getTotalHours(), row.getTotalValue()));
+        }
+
+        // template occurrences are not rows yet, so they are folded into the database totals here
+        for (ShiftOccurrenceDTO occurrence : shiftTemplateExpander.expand(userId, from, to)) {
+            LocalDate day = occurrence.startTime().toLocalDate();
+            LocalDate periodStart = granularity == ShiftSummaryGranularity.WEEK
+                    ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY))
+                    : day.withDayOfMonth(1);
+            SummaryKey key = new SummaryKey(periodStart, byLocation ? occurrence.location() : null);
+            double hours = Duration.between(occurrence.startTime(), occurrence.endTime()).toSeconds() / 3600.0;
+            totals.merge(key, new ShiftSummaryDTO(periodStart, key.location(), 1, hours, occurrence.value()),
+                    (a, b) -> new ShiftSummaryDTO(a.periodStart(), a.location(), a.shiftCount() + b.shiftCount(),
+                            a.totalHours() + b.totalHours(), a.totalValue() + b.totalValue()));
+        }
+
+        return totals.values().stream()
+                .sorted(Comparator.comparing(ShiftSummaryDTO::periodStart)
+                        .thenComparing(ShiftSummaryDTO::location, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    private record SummaryKey(LocalDate periodStart, String location) { }
+
+    @Transactional
+    public ShiftResponseDTO create(String userId, ShiftRequestDTO request) {
+        if (!isValid(request)) throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        User owner = lockOwner(userId);
+        if (!shiftConflictService.findConflicts(userId, request.startTime(), request.endTime()).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        }
+
+        Shift shift = new Shift();
+        shift.setUser(owner);
+        apply(shift, request);
+        locationService.ledger(owner).assign(shift);
+        touch(shift, owner);
+        return ShiftResponseDTO.from(shiftRepository.save(shift));
+    }
+
+    @Transactional
+    public ShiftResponseDTO update(String userId, long id, ShiftRequestDTO request) {
+        User owner = lockOwner(userId);
+        Shift shift = findActiveById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (!isOwner(shift, userId)) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        if (!isValid(request)) throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        if (!shiftConflictService.findConflicts(userId, request.startTime(), request.endTime(), o -> Long.valueOf(id).equals(o.id())).isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT);
+        }
+
+        LocationLedger ledger = locationService.ledger(owner);
+        ledger.release(shift);
+        apply(shift, request);
+        ledger.assign(shift);
+        touch(shift, owner);
+        return ShiftResponseDTO.from(shiftRepository.save(shift));
+    }
+
+    @Transactional
+    public void delete(String userId, long id) {
+        User owner = lockOwner(userId);
+        Shift shift = findActiveById(id).orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (!isOwner(shift, userId)) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        remove(shift, owner, locationService.ledger(owner));
+    }
+
+    @Transactional(readOnly = true)
+    public List<ShiftOccurrenceDTO> findConflicts(String userId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) throw new IllegalArgumentException("from must be before to");
+        return shiftConflictService.findConflicts(userId, from, to);
+    }
+
+    @Transactional
+    public List<ShiftBatchItemResultDTO> applyBatch(String userId, ShiftBatchRequestDTO batch) {
+        List<ShiftRequestDTO> creates = Objects.requireNonNullElse(batch.create(), Collections.emptyList());
+        List<ShiftBatchUpdateDTO> updates = Objects.requireNonNullElse(batch.update(), Collections.emptyList());
+        List<Long> deletes = Objects.requireNonNullElse(batch.delete(), Collections.emptyList());
+
+        User owner = lockOwner(userId);
+        LocationLedger ledger = locationService.ledger(owner);
+
+        // one IN query for every shift the batch touches instead of a findById per item
+        List<Long> touchedIds = Stream.concat(updates.stream().map(ShiftBatchUpdateDTO::id), deletes.stream()).distinct().toList();
+        Map<Long, Shift> existing = shiftRepository.findAllById(touchedIds).stream()
+                .collect(Collectors.toMap(Shift::getId, Function.identity()));
+
+        // everything that could collide with an item lies in the hull of the new intervals, so it is loaded once
+        // and the items are checked against it in memory, including against each other
+        List<ShiftOccurrenceDTO> occupied = loadOccupied(userId, Stream.concat(creates.stream(), updates.stream().map(ShiftBatchUpdateDTO::shift)).toList());
+
+        List<ShiftBatchItemResultDTO> results = new ArrayList<>();
+
+        // deletes go first so a batch can move shifts into slots it frees
+        List<Shift> removed = new ArrayList<>();
+        for (int i = 0; i < deletes.size(); i++) {
+            Long id = deletes.get(i);
+            Shift shift = existing.get(id);
+            HttpStatus status = checkAccess(shift, userId);
+            if (status == HttpStatus.OK) {
+                removed.add(shift);
+                occupied.removeIf(o -> id.equals(o.id()));
+            }
+            results.add(new ShiftBatchItemResultDTO(ShiftBatchOperation.DELETE, i, id, status.value(), null));
+        }
+        removed.forEach(shift -> remove(shift, owner, ledger));
+
+        for (int i = 0; i < updates.size(); i++) {
+            ShiftBatchUpdateDTO update = updates.get(i);
+            Shift shift = removed.contains(existing.get(update.id())) ? null : existing.get(update.id());
+            HttpStatus status = checkAccess(shift, userId);
+            if (status == HttpStatus.OK && !isValid(update.shift())) status = HttpStatus.BAD_REQUEST;
+            if (status == HttpStatus.OK) {
+                List<ShiftOccurrenceDTO> others = occupied.stream().filter(o -> !Long.valueOf(update.id()).equals(o.id())).toList();
+                if (overlapsAny(others, update.shift())) status = HttpStatus.CONFLICT;
+            }
+            if (status != HttpStatus.OK) {
+                results.add(new ShiftBatchItemResultDTO(ShiftBatchOperation.UPDATE, i, update.id(), status.value(), null));
+                continue;
+            }
+            ledger.release(shift);
+            apply(shift, update.shift());
+            ledger.assign(shift);
+            touch(shift, owner);
+            occupied.removeIf(o -> Long.valueOf(update.id()).equals(o.id()));
+            occupied.add(toOccurrence(shift));
+            results.add(new ShiftBatchItemResultDTO(ShiftBatchOperation.UPDATE, i, update.id(), status.value(), ShiftResponseDTO.from(shift)));
+        }
+
+        List<Integer> createdIndexes = new ArrayList<>();
+        List<Shift> created = new ArrayList<>();
+        for (int i = 0; i < creates.size(); i++) {
+            ShiftRequestDTO request = creates.get(i);
+            HttpStatus status = !isValid(request) ? HttpStatus.BAD_REQUEST : overlapsAny(occupied, request) ? HttpStatus.CONFLICT : HttpStatus.OK;
+            if (status != HttpStatus.OK) {
+                results.add(new ShiftBatchItemResultDTO(ShiftBatchOperation.CREATE, i, null, status.value(), null));
+                continue;
+            }
+            Shift shift = new Shift();
+            shift.setUser(owner);
+            apply(shift, request);
+            ledger.assign(shift);
+            touch(shift, owner);
+            occupied.add(toOccurrence(shift));
+            createdIndexes.add(i);
+            created.add(shift);
+        }
+        // ids come from the pooled sequence, so these inserts are sent as JDBC batches on flush
+        shiftRepository.saveAll(created);
+        for (int c = 0; c < created.size(); c++) {
+            Shift shift = created.get(c);
+            results.add(new ShiftBatchItemResultDTO(ShiftBatchOperation.CREATE, createdIndexes.get(c), shift.getId(), HttpStatus.OK.value(), ShiftResponseDTO.from(shift)));
+        }
+
+        return results;
+    }
+
+    private List<ShiftOccurrenceDTO> loadOccupied(String userId, List<ShiftRequestDTO> requests) {
+        List<ShiftRequestDTO> valid = requests.stream().filter(this::isValid).toList();
+        if (valid.isEmpty()) return new ArrayList<>();
+
+        LocalDateTime from = valid.stream().map(ShiftRequestDTO::startTime).min(Comparator.naturalOrder()).get();
+        LocalDateTime to = valid.stream().map(ShiftRequestDTO::endTime).max(Comparator.naturalOrder()).get();
+        return new ArrayList<>(shiftConflictService.findConflicts(userId, from, to));
+    }
+
+    private static boolean overlapsAny(List<ShiftOccurrenceDTO> occupied, ShiftRequestDTO request) {
+        return occupied.stream().anyMatch(o -> ShiftConflictService.overlaps(o, request.startTime(), request.endTime()));
+    }
+
+    private static ShiftOccurrenceDTO toOccurrence(Shift shift) {
+        Long templateId = shift.getTemplate() == null ? null : shift.getTemplate().getId();
+        Long id = shift.getId() == 0 ? null : shift.getId();
+        return new ShiftOccurrenceDTO(id, templateId, shift.getOccurrenceDate(), shift.getStartTime(), shift.getEndTime(), shift.getValue(), shift.getLocation());
+    }
+
+    // serializes writes per user so two concurrent requests cannot both pass the overlap check,
+    // and moves the version the reads hand out as ETag; a rolled back write leaves it untouched
+    public User lockOwner(String userId) {
+        User owner = userRepository.findByIdForUpdate(userId).orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED));
+        owner.setShiftsVersion(owner.getShiftsVersion() + 1);
+        return owner;
+    }
+
+    // the owner comes from lockOwner, so it already carries the version of the current write
+    public static void touch(Shift shift, User owner) {
+        shift.setSyncVersion(owner.getShiftsVersion());
     }
 
-    public void deleteById(Long id) {
-        shiftRepository.deleteById(id);
+    public Optional<Shift> findActiveById(Long id) {
+        return shiftRepository.findById(id).filter(shift -> !shift.isCancelled());
+    }
+
+    // the row stays as a tombstone for /shifts/changes; for a template occurrence it also keeps the template
+    // from expanding that date again
+    private static void remove(Shift shift, User owner, LocationLedger ledger) {
+        ledger.release(shift);
+        shift.setCancelled(true);
+        touch(shift, owner);
+    }
+
+    private static HttpStatus checkAccess(Shift shift, String userId) {
+        if (shift == null || shift.isCancelled()) return HttpStatus.NOT_FOUND;
+        return isOwner(shift, userId) ? HttpStatus.OK : HttpStatus.UNAUTHORIZED;
+    }
+
+    // reading the id of the lazy user proxy does not initialize it
+    private static boolean isOwner(Shift shift, String userId) {
+        return shift.getUser().getId().equals(userId);
+    }
+
+    // months past the archive horizon are read-only, they are about to move to the archive or already have
+    private boolean isValid(ShiftRequestDTO request) {
+        return request != null && request.startTime() != null && request.endTime() != null && request.location() != null
+                && request.startTime().isBefore(request.endTime())
+                && !request.startTime().isBefore(shiftPartitions.earliestWritable());
+    }
+
+    private static void apply(Shift shift, ShiftRequestDTO request) {
+        shift.setStartTime(request.startTime());
+        shift.setEndTime(request.endTime());
+        shift.setValue(request.value());
+        shift.setLocation(request.location());
+    }
+
+    public Shift save(Shift shift) {
+        return shiftRepository.save(shift);
     }
 }
@@ -0,0 +1,24 @@
+package com.example.loginauthapi.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public record ShiftSyncCursor(long version, long id) {
+
+    public static final ShiftSyncCursor INITIAL = new ShiftSyncCursor(-1, -1);
+
+    public String encode() {
+        String raw = version + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ShiftSyncCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            return new ShiftSyncCursor(Long.parseLong(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.shift.ShiftTemplate;
+import com.example.loginauthapi.dto.shift.ShiftOccurrenceDTO;
+import com.example.loginauthapi.infra.persistence.ShiftPartitions;
+import com.example.loginauthapi.repositories.ShiftRepository;
+import com.example.loginauthapi.repositories.ShiftTemplateRepository;
+import com.example.loginauthapi.repositories.TemplateOccurrenceKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Component
+public class ShiftTemplateExpander {
+
+    @Autowired
+    ShiftTemplateRepository shiftTemplateRepository;
+    @Autowired
+    ShiftRepository shiftRepository;
+    @Autowired
+    ShiftPartitions shiftPartitions;
+
+    public List<ShiftOccurrenceDTO> expand(String userId, LocalDateTime requestedFrom, LocalDateTime to) {
+        // months that were archived took their occurrences, expanded and overridden alike, into the archive with them
+        LocalDateTime from = requestedFrom.isBefore(shiftPartitions.earliestLive()) ? shiftPartitions.earliestLive() : requestedFrom;
+        if (!from.isBefore(to)) return List.of();
+
+        // occurrences starting in [from, to) can only fall on these dates
+        LocalDate fromDate = from.toLocalDate();
+        LocalDate toDate = to.toLocalDate();
+
+        List<ShiftTemplate> templates = shiftTemplateRepository.findActive(userId, fromDate, toDate);
+        if (templates.isEmpty()) return List.of();
+
+        Set<TemplateOccurrenceKey> materialized = new HashSet<>(shiftRepository.findMaterializedOccurrences(
+                templates.stream().map(ShiftTemplate::getId).toList(), fromDate, toDate));
+
+        List<ShiftOccurrenceDTO> occurrences = new ArrayList<>();
+        for (ShiftTemplate template : templates) {
+            LocalDate first = fromDate.isAfter(template.getStartDate()) ? fromDate : template.getStartDate();
+            LocalDate last = template.getEndDate() == null || toDate.isBefore(template.getEndDate()) ? toDate : template.getEndDate();
+            for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+                if (!occursOn(template, date) || materialized.contains(new TemplateOccurrenceKey(template.getId(), date))) continue;
+
+                LocalDateTime start = date.atTime(template.getStartTime());
+                if (start.isBefore(from) || !start.isBefore(to)) continue;
+                occurrences.add(new ShiftOccurrenceDTO(null, template.getId(), date, start, start.plusMinutes(template.getDurationMinutes()),
+                        template.getValue(), template.getLocation()));
+            }
+        }
+        return occurrences;
+    }
+
+    public static boolean occursOn(ShiftTemplate template, LocalDate date) {
+        if (date.isBefore(template.getStartDate())) return false;
+        if (template.getEndDate() != null && date.isAfter(template.getEndDate())) return false;
+        if ((template.getDaysOfWeek() & (1 << (date.getDayOfWeek().getValue() - 1))) == 0) return false;
+
+        long weeks = ChronoUnit.WEEKS.between(
+                template.getStartDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)),
+                date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
+        return weeks % template.getIntervalWeeks() == 0;
+    }
+}
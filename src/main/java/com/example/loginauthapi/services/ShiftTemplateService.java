@@ -0,0 +1,221 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.shift.Shift;
+import com.example.loginauthapi.domain.shift.ShiftTemplate;
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.dto.shift.ShiftOccurrenceDTO;
+import com.example.loginauthapi.dto.shift.ShiftRequestDTO;
+import com.example.loginauthapi.dto.shift.ShiftResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftTemplateRequestDTO;
+import com.example.loginauthapi.dto.shift.ShiftTemplateResponseDTO;
+import com.example.loginauthapi.infra.persistence.ShiftPartitions;
+import com.example.loginauthapi.repositories.ShiftRepository;
+import com.example.loginauthapi.repositories.ShiftTemplateRepository;
+import com.example.loginauthapi.repositories.TemplateOccurrenceKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class ShiftTemplateService {
+
+    public static final int MAX_DURATION_MINUTES = 48 * 60;
+
+    @Autowired
+    ShiftTemplateRepository shiftTemplateRepository;
+    @Autowired
+    ShiftRepository shiftRepository;
+    @Autowired
+    ShiftConflictService shiftConflictService;
+    @Autowired
+    ShiftService shiftService;
+    @Autowired
+    LocationService locationService;
+    @Autowired
+    ShiftPartitions shiftPartitions;
+
+    @Transactional(readOnly = true)
+    public List<ShiftTemplateResponseDTO> findByUser(String userId) {
+        return shiftTemplateRepository.findByUserIdAndDeletedFalse(userId).stream().map(ShiftTemplateService::toResponse).toList();
+    }
+
+    @Transactional
+    public ShiftTemplateResponseDTO create(String userId, ShiftTemplateRequestDTO request) {
+        validate(request);
+        ShiftTemplate template = new ShiftTemplate();
+        User owner = shiftService.lockOwner(userId);
+        checkConflicts(userId, null, request);
+        template.setUser(owner);
+        apply(template, request);
+        template.setSyncVersion(owner.getShiftsVersion());
+        return toResponse(shiftTemplateRepository.save(template));
+    }
+
+    @Transactional
+    public ShiftTemplateResponseDTO update(String userId, long id, ShiftTemplateRequestDTO request) {
+        validate(request);
+        ShiftTemplate template = findOwned(userId, id);
+        User owner = shiftService.lockOwner(userId);
+        // before the template is changed, so the scan still sees the occurrences it is replacing as its own
+        checkConflicts(userId, id, request);
+        apply(template, request);
+        template.setSyncVersion(owner.getShiftsVersion());
+        return toResponse(template);
+    }
+
+    @Transactional
+    public void delete(String userId, long id) {
+        ShiftTemplate template = findOwned(userId, id);
+        User owner = shiftService.lockOwner(userId);
+        // overridden occurrences were edited by hand, so they survive the series as ordinary shifts, and
+        // cancellations stay behind as the tombstones they already are; both report the detach in the feed, and
+        // the template's tombstone tells clients to drop the occurrences they expanded from it
+        shiftRepository.detachFromTemplate(template.getId(), owner.getShiftsVersion());
+        template.setDeleted(true);
+        template.setSyncVersion(owner.getShiftsVersion());
+    }
+
+    @Transactional
+    public ShiftResponseDTO overrideOccurrence(String userId, long id, LocalDate date, ShiftRequestDTO request) {
+        if (request.startTime() == null || request.endTime() == null || request.location() == null
+                || !request.startTime().isBefore(request.endTime())
+                || request.startTime().isBefore(shiftPartitions.earliestWritable())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+        ShiftTemplate template = findOwned(userId, id);
+        User owner = shiftService.lockOwner(userId);
+        // the occurrence being replaced, stored or still virtual, is not a conflict with its own override
+        boolean conflicting = !shiftConflictService.findConflicts(userId, request.startTime(), request.endTime(),
+                o -> Long.valueOf(id).equals(o.templateId()) && date.equals(o.occurrenceDate())).isEmpty();
+        if (conflicting) throw new ResponseStatusException(HttpStatus.CONFLICT);
+
+        Shift shift = materialize(template, date);
+        LocationLedger ledger = locationService.ledger(owner);
+        ledger.release(shift);
+        shift.setStartTime(request.startTime());
+        shift.setEndTime(request.endTime());
+        shift.setValue(request.value());
+        shift.setLocation(request.location());
+        shift.setCancelled(false);
+        ledger.assign(shift);
+        ShiftService.touch(shift, owner);
+        return ShiftResponseDTO.from(shiftRepository.save(shift));
+    }
+
+    @Transactional
+    public void cancelOccurrence(String userId, long id, LocalDate date) {
+        ShiftTemplate template = findOwned(userId, id);
+        User owner = shiftService.lockOwner(userId);
+        Shift shift = materialize(template, date);
+        locationService.ledger(owner).release(shift);
+        shift.setCancelled(true);
+        ShiftService.touch(shift, owner);
+        shiftRepository.save(shift);
+    }
+
+    // the occurrences are checked over the window a calendar read can ask for, from today or the template's start:
+    // they must not overlap stored shifts, other templates' occurrences or each other. One scan over the whole window
+    // finds everything they could run into, instead of one per occurrence; on update the template's own occurrences,
+    // stored or virtual, are the ones being replaced, and the dates it has overrides for keep them
+    private void checkConflicts(String userId, Long id, ShiftTemplateRequestDTO request) {
+        ShiftTemplate candidate = new ShiftTemplate();
+        apply(candidate, request);
+        LocalDate first = request.startDate().isAfter(LocalDate.now()) ? request.startDate() : LocalDate.now();
+        LocalDate last = first.plusDays(ShiftService.MAX_CALENDAR_WINDOW.toDays() - 1);
+        if (request.endDate() != null && request.endDate().isBefore(last)) last = request.endDate();
+
+        Set<LocalDate> overridden = id == null ? Set.of() : shiftRepository.findMaterializedOccurrences(List.of(id), first, last).stream()
+                .map(TemplateOccurrenceKey::occurrenceDate)
+                .collect(Collectors.toSet());
+        List<LocalDateTime> starts = new ArrayList<>();
+        for (LocalDate date = first; !date.isAfter(last); date = date.plusDays(1)) {
+            if (ShiftTemplateExpander.occursOn(candidate, date) && !overridden.contains(date)) starts.add(date.atTime(request.startTime()));
+        }
+        if (starts.isEmpty()) return;
+
+        Duration duration = Duration.ofMinutes(request.durationMinutes());
+        List<ShiftOccurrenceDTO> existing = shiftConflictService.findConflicts(userId, starts.get(0), starts.get(starts.size() - 1).plus(duration),
+                occurrence -> id != null && id.equals(occurrence.templateId()));
+        LocalDateTime previousEnd = LocalDateTime.MIN;
+        for (LocalDateTime start : starts) {
+            LocalDateTime end = start.plus(duration);
+            boolean conflicting = start.isBefore(previousEnd)
+                    || existing.stream().anyMatch(occurrence -> ShiftConflictService.overlaps(occurrence, start, end));
+            if (conflicting) throw new ResponseStatusException(HttpStatus.CONFLICT);
+            previousEnd = end;
+        }
+    }
+
+    private Shift materialize(ShiftTemplate template, LocalDate date) {
+        if (!ShiftTemplateExpander.occursOn(template, date)) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+        // occurrences past the archive horizon are read-only, like every other shift there
+        if (date.atTime(template.getStartTime()).isBefore(shiftPartitions.earliestWritable())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+        }
+
+        return shiftRepository.findByTemplateIdAndOccurrenceDate(template.getId(), date).orElseGet(() -> {
+            Shift shift = new Shift();
+            LocalDateTime start = date.atTime(template.getStartTime());
+            shift.setUser(template.getUser());
+            shift.setTemplate(template);
+            shift.setOccurrenceDate(date);
+            shift.setStartTime(start);
+            shift.setEndTime(start.plusMinutes(template.getDurationMinutes()));
+            shift.setValue(template.getValue());
+            shift.setLocation(template.getLocation());
+            return shift;
+        });
+    }
+
+    private ShiftTemplate findOwned(String userId, long id) {
+        ShiftTemplate template = shiftTemplateRepository.findByIdAndDeletedFalse(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        if (!template.getUser().getId().equals(userId)) throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        return template;
+    }
+
+    private static void validate(ShiftTemplateRequestDTO request) {
+        boolean valid = request.daysOfWeek() != null && !request.daysOfWeek().isEmpty()
+                && request.intervalWeeks() >= 1
+                && request.startTime() != null
+                && request.durationMinutes() > 0 && request.durationMinutes() <= MAX_DURATION_MINUTES
+                && request.location() != null
+                && request.startDate() != null
+                && (request.endDate() == null || !request.endDate().isBefore(request.startDate()));
+        if (!valid) throw new ResponseStatusException(HttpStatus.BAD_REQUEST);
+    }
+
+    private static void apply(ShiftTemplate template, ShiftTemplateRequestDTO request) {
+        int mask = 0;
+        for (DayOfWeek day : request.daysOfWeek()) mask |= 1 << (day.getValue() - 1);
+        template.setDaysOfWeek(mask);
+        template.setIntervalWeeks(request.intervalWeeks());
+        template.setStartTime(request.startTime());
+        template.setDurationMinutes(request.durationMinutes());
+        template.setValue(request.value());
+        template.setLocation(request.location());
+        template.setStartDate(request.startDate());
+        template.setEndDate(request.endDate());
+    }
+
+    private static ShiftTemplateResponseDTO toResponse(ShiftTemplate template) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((template.getDaysOfWeek() & (1 << (day.getValue() - 1))) != 0) days.add(day);
+        }
+        return new ShiftTemplateResponseDTO(template.getId(), days, template.getIntervalWeeks(), template.getStartTime(),
+                template.getDurationMinutes(), template.getValue(), template.getLocation(), template.getStartDate(), template.getEndDate());
+    }
+}
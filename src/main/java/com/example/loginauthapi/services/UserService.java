@@ -0,0 +1,65 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.domain.user.UserCredentials;
+import com.example.loginauthapi.infra.cache.ExpiringCache;
+import com.example.loginauthapi.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+@Service
+public class UserService {
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Value("${api.users.cache.max-size:10000}")
+    private int cacheMaxSize;
+    @Value("${api.users.cache.ttl:30s}")
+    private Duration cacheTtl;
+
+    // only users that exist are cached: a cached miss would keep rejecting an account registered on another node,
+    // and lookups of unknown emails are already bounded by the per-email rate limit
+    private ExpiringCache<String, UserCredentials> usersByEmail;
+
+    @PostConstruct
+    void init() {
+        this.usersByEmail = new ExpiringCache<>(cacheMaxSize);
+    }
+
+    public Optional<UserCredentials> findByEmail(String email) {
+        String normalized = User.normalizeEmail(email);
+        if (normalized == null) return Optional.empty();
+        UserCredentials cached = usersByEmail.get(normalized);
+        if (cached != null) return Optional.of(cached);
+
+        Optional<UserCredentials> user = userRepository.findByNormalizedEmail(normalized).map(UserCredentials::from);
+        user.ifPresent(found -> usersByEmail.put(normalized, found, Instant.now().plus(cacheTtl)));
+        return user;
+    }
+
+    // the new user is cached rather than evicted, so the first authenticated request does not depend on a replica
+    // having caught up with the insert; a taken email surfaces as a DataIntegrityViolationException from the unique index
+    public User register(User user) {
+        User saved = userRepository.save(user);
+        usersByEmail.put(saved.getNormalizedEmail(), UserCredentials.from(saved), Instant.now().plus(cacheTtl));
+        return saved;
+    }
+
+    @Transactional
+    public void updatePassword(UserCredentials user, String encodedPassword) {
+        userRepository.updatePassword(user.id(), encodedPassword);
+        usersByEmail.invalidate(User.normalizeEmail(user.email()));
+    }
+
+    public ExpiringCache.CacheStats cacheStats() {
+        return usersByEmail.stats();
+    }
+}
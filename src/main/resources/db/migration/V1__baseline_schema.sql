@@ -0,0 +1,27 @@
+-- The schema of the first release, as hibernate's ddl-auto=update created it. Such a database is baselined at this
+-- version (spring.flyway.baseline-on-migrate) and brought forward by the migrations that follow, so the generated
+-- names are kept as they are there.
+
+create table users (
+    id varchar(255) not null,
+    city varchar(255),
+    email varchar(255),
+    name varchar(255),
+    password varchar(255),
+    professional_register varchar(255),
+    professional_type integer not null,
+    state varchar(255),
+    primary key (id)
+);
+
+create table shift (
+    id bigserial not null,
+    end_time timestamp(6) not null,
+    location varchar(255) not null,
+    start_time timestamp(6) not null,
+    value float(53) not null,
+    user_id varchar(255) not null,
+    primary key (id)
+);
+
+alter table shift add constraint FKm8m3seb2ppvoain4n92thqkm7 foreign key (user_id) references users;
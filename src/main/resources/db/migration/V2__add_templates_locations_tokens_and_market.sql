@@ -0,0 +1,107 @@
+-- Everything the entities gained on top of the first release: normalized emails and the shifts version on users,
+-- recurring templates, per-user locations with their rollups, refresh and revoked tokens, the shift market, and the
+-- columns shifts need for all of that. Rows that already exist are filled in by the next migration.
+
+alter table users add column email_normalized varchar(255);
+alter table users add column shifts_version bigint default 0 not null;
+alter table users add constraint uk_users_email_normalized unique (email_normalized);
+
+-- shift ids come from a pooled sequence instead of the serial column, so inserts can be batched; it starts past the
+-- ids handed out so far, since hibernate takes the block below each value it reads
+alter table shift alter column id drop default;
+drop sequence shift_id_seq;
+create sequence shift_seq start with 1 increment by 50;
+select setval('shift_seq', max(id) + 50) from shift having max(id) is not null;
+
+create table shift_template (
+    id bigserial not null,
+    days_of_week integer not null,
+    interval_weeks integer not null,
+    start_time time(6) not null,
+    duration_minutes integer not null,
+    value float(53) not null,
+    location varchar(255) not null,
+    start_date date not null,
+    end_date date,
+    user_id varchar(255) not null,
+    primary key (id)
+);
+
+create table location (
+    id bigserial not null,
+    name varchar(255) not null,
+    normalized_name varchar(255) not null,
+    last_used_at timestamp(6) not null,
+    shift_count bigint default 0 not null,
+    total_seconds bigint default 0 not null,
+    total_value float(53) default 0 not null,
+    user_id varchar(255) not null,
+    primary key (id),
+    constraint uk_location_user_name unique (user_id, normalized_name)
+);
+
+alter table shift add column location_id bigint;
+alter table shift add column template_id bigint;
+alter table shift add column occurrence_date date;
+alter table shift add column cancelled boolean default false not null;
+alter table shift add column updated_at timestamp(6);
+alter table shift add column sync_version bigint default 0 not null;
+alter table shift add constraint uk_shift_template_occurrence unique (template_id, occurrence_date);
+
+create table refresh_token (
+    id bigserial not null,
+    token_hash varchar(64) not null,
+    family varchar(36) not null,
+    created_at timestamp(6) with time zone not null,
+    expires_at timestamp(6) with time zone not null,
+    used_at timestamp(6) with time zone,
+    revoked boolean not null,
+    user_id varchar(255) not null,
+    primary key (id),
+    constraint idx_refresh_token_hash unique (token_hash)
+);
+
+create table revoked_token (
+    jti varchar(36) not null,
+    expires_at timestamp(6) with time zone not null,
+    revoked_at timestamp(6) with time zone not null,
+    primary key (jti)
+);
+
+create table shift_offer (
+    id bigserial not null,
+    start_time timestamp(6) not null,
+    end_time timestamp(6) not null,
+    value float(53) not null,
+    location varchar(255) not null,
+    state varchar(255) not null,
+    city varchar(255) not null,
+    professional_type integer not null,
+    status varchar(16) not null check (status in ('OPEN','CLAIMED','WITHDRAWN')),
+    created_at timestamp(6) not null,
+    claimed_at timestamp(6),
+    version bigint not null,
+    poster_id varchar(255) not null,
+    claimed_by_id varchar(255),
+    primary key (id)
+);
+
+create index idx_shift_user_start_time on shift (user_id, start_time, id);
+create index idx_shift_user_sync_version on shift (user_id, sync_version, id);
+create index idx_shift_template_user on shift_template (user_id);
+create index idx_location_user_last_used on location (user_id, last_used_at);
+create index idx_refresh_token_family on refresh_token (family);
+create index idx_refresh_token_user on refresh_token (user_id);
+create index idx_revoked_token_revoked_at on revoked_token (revoked_at);
+create index idx_revoked_token_expires_at on revoked_token (expires_at);
+create index idx_shift_offer_region on shift_offer (status, state, professional_type, start_time, id);
+create index idx_shift_offer_region_city on shift_offer (status, state, professional_type, city, start_time, id);
+create index idx_shift_offer_poster on shift_offer (poster_id);
+
+alter table shift_template add constraint FK5ky7yt2wb0pyj7u7u5fve6c0o foreign key (user_id) references users;
+alter table location add constraint FK55by463ivfy1u1qfylnjswyje foreign key (user_id) references users;
+alter table shift add constraint FK83l6gtcelou8thva2f79ha1k3 foreign key (template_id) references shift_template;
+alter table shift add constraint FKjsvv5egs0b50o92gvctrcq9f6 foreign key (location_id) references location;
+alter table refresh_token add constraint FKjtx87i0jvq2svedphegvdwcuy foreign key (user_id) references users;
+alter table shift_offer add constraint FKlkthaid2t2wikjej5igk0pqli foreign key (poster_id) references users;
+alter table shift_offer add constraint FKhqm5ytnonhss9k6m2aeksuee3 foreign key (claimed_by_id) references users;
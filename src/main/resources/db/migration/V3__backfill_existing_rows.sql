@@ -0,0 +1,35 @@
+-- Fills in the columns the previous migration added for the rows that were already there; on a new database it
+-- finds nothing to do.
+
+-- users registered before email_normalized existed; emails that only differ in case would violate the unique
+-- index, so those accounts are left out, to be merged by hand:
+--   select * from users where email_normalized is null and email is not null
+update users u set email_normalized = lower(trim(u.email))
+where u.email_normalized is null and u.email is not null
+  and not exists (select 1 from users o where o.id <> u.id and lower(trim(o.email)) = lower(trim(u.email)));
+
+-- shifts stored before locations existed; normalized the same way as LocationService.normalize, and only the
+-- rows linked here are added to the rollups
+insert into location (user_id, name, normalized_name, last_used_at, shift_count, total_seconds, total_value)
+select s.user_id, min(btrim(s.location)), lower(btrim(regexp_replace(s.location, '\s+', ' ', 'g'))),
+       max(coalesce(s.updated_at, s.start_time)), 0, 0, 0
+from shift s
+where s.location_id is null
+group by s.user_id, lower(btrim(regexp_replace(s.location, '\s+', ' ', 'g')))
+on conflict (user_id, normalized_name) do nothing;
+
+with linked as (
+    update shift s set location_id = l.id
+    from location l
+    where s.location_id is null and l.user_id = s.user_id
+      and l.normalized_name = lower(btrim(regexp_replace(s.location, '\s+', ' ', 'g')))
+    returning s.location_id, s.cancelled, s.start_time, s.end_time, s.value
+)
+update location l
+set shift_count = l.shift_count + d.shift_count,
+    total_seconds = l.total_seconds + d.total_seconds,
+    total_value = l.total_value + d.total_value
+from (select location_id, count(*) as shift_count,
+             sum(extract(epoch from end_time - start_time))::bigint as total_seconds, sum(value) as total_value
+      from linked where not cancelled group by location_id) d
+where l.id = d.location_id;
@@ -0,0 +1,81 @@
+-- Range-partitions shift by start_time, one partition per month, and adds the archive that months older than
+-- api.shifts.archive.horizon are moved into (see ShiftArchiveService). From here on the archive job creates the
+-- months ahead and drops the archived ones; shift_future catches anything past the last month it created.
+--
+-- Postgres requires the partition key in every unique constraint, so the primary key becomes (id, start_time) and
+-- (template_id, occurrence_date) is indexed without being unique. Writes to a template's occurrences are already
+-- serialized on the owner's row lock, which is what kept that pair unique in practice.
+
+alter table shift rename to shift_unpartitioned;
+alter table shift_unpartitioned rename constraint shift_pkey to shift_unpartitioned_pkey;
+alter table shift_unpartitioned drop constraint uk_shift_template_occurrence;
+drop index idx_shift_user_start_time;
+drop index idx_shift_user_sync_version;
+alter table shift_unpartitioned drop constraint FKm8m3seb2ppvoain4n92thqkm7;
+alter table shift_unpartitioned drop constraint FK83l6gtcelou8thva2f79ha1k3;
+alter table shift_unpartitioned drop constraint FKjsvv5egs0b50o92gvctrcq9f6;
+
+create table shift (
+    id bigint not null,
+    start_time timestamp(6) not null,
+    end_time timestamp(6) not null,
+    value float(53) not null,
+    location varchar(255) not null,
+    location_id bigint,
+    user_id varchar(255) not null,
+    template_id bigint,
+    occurrence_date date,
+    cancelled boolean default false not null,
+    updated_at timestamp(6),
+    sync_version bigint default 0 not null,
+    primary key (id, start_time)
+) partition by range (start_time);
+
+create index idx_shift_user_start_time on shift (user_id, start_time, id);
+create index idx_shift_user_sync_version on shift (user_id, sync_version, id);
+create index idx_shift_template_occurrence on shift (template_id, occurrence_date);
+
+alter table shift add constraint FKm8m3seb2ppvoain4n92thqkm7 foreign key (user_id) references users;
+alter table shift add constraint FK83l6gtcelou8thva2f79ha1k3 foreign key (template_id) references shift_template;
+alter table shift add constraint FKjsvv5egs0b50o92gvctrcq9f6 foreign key (location_id) references location;
+
+-- every month that holds a shift today, and at least the 24 months of the default horizon, through three months
+-- ahead; older months are archived by the first run of the job
+do $$
+declare
+    first_month date := least(
+            (select date_trunc('month', min(start_time)) from shift_unpartitioned),
+            date_trunc('month', localtimestamp) - interval '24 months');
+    last_month date := date_trunc('month', localtimestamp) + interval '3 months';
+    month date;
+begin
+    month := first_month;
+    while month <= last_month loop
+        execute format('create table %I partition of shift for values from (%L) to (%L)',
+                       'shift_y' || to_char(month, 'YYYY') || 'm' || to_char(month, 'MM'), month, month + interval '1 month');
+        month := month + interval '1 month';
+    end loop;
+    execute format('create table shift_future partition of shift for values from (%L) to (maxvalue)', last_month + interval '1 month');
+end $$;
+
+insert into shift (id, start_time, end_time, value, location, location_id, user_id, template_id, occurrence_date,
+                   cancelled, updated_at, sync_version)
+select id, start_time, end_time, value, location, location_id, user_id, template_id, occurrence_date,
+       cancelled, updated_at, sync_version
+from shift_unpartitioned;
+
+drop table shift_unpartitioned;
+
+-- one row per user and month, the shifts packed into a jsonb array sorted by start time; rows are only ever
+-- inserted or appended to, and storage main keeps the array compressed inline instead of out of line in TOAST
+create table shift_archive (
+    user_id varchar(255) not null,
+    month date not null,
+    shift_count integer not null,
+    shifts jsonb not null,
+    archived_at timestamp(6) not null,
+    primary key (user_id, month)
+) with (fillfactor = 100, toast_tuple_target = 128);
+
+alter table shift_archive alter column shifts set storage main;
+alter table shift_archive add constraint fk_shift_archive_user foreign key (user_id) references users;
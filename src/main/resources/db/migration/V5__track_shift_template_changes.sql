@@ -0,0 +1,8 @@
+-- Templates become tombstones when deleted and carry the shifts_version of their last write, so /shifts/changes can
+-- report the occurrences a template change adds or removes. Existing templates keep version 0; clients
+-- that already sync fetched them from /shift-templates.
+
+alter table shift_template add column deleted boolean default false not null;
+alter table shift_template add column sync_version bigint default 0 not null;
+
+create index idx_shift_template_user_sync_version on shift_template (user_id, sync_version, id);
@@ -0,0 +1,3 @@
+-- Expired refresh tokens are now deleted across all users on every revocation refresh instead of per user at login.
+
+create index idx_refresh_token_expires_at on refresh_token (expires_at);
@@ -0,0 +1,8 @@
+-- Months whose shifts were moved into shift_archive. A month stays attached until its partition can be dropped, and a
+-- run that finds it here only moves the rows still left in it instead of writing its template occurrences out again.
+
+create table shift_archived_month (
+    month date not null,
+    archived_at timestamp(6) not null,
+    primary key (month)
+);
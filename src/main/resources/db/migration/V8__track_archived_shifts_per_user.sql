@@ -0,0 +1,5 @@
+-- The shifts_version the archive took the last time it moved shifts of the user, and the end of the month it moved,
+-- so /shifts/changes can tell a client that synced before it which of its shifts are gone.
+
+alter table users add column archived_version bigint default 0 not null;
+alter table users add column archived_before timestamp(6);
@@ -0,0 +1,120 @@
+package com.example.loginauthapi.controllers;
+
+import com.example.loginauthapi.domain.user.UserCredentials;
+import com.example.loginauthapi.dto.auth.AuthLoginRequestDTO;
+import com.example.loginauthapi.infra.metrics.ErrorMetrics;
+import com.example.loginauthapi.infra.security.PasswordHashingService;
+import com.example.loginauthapi.infra.security.SecurityConfig;
+import com.example.loginauthapi.infra.security.TokenService;
+import com.example.loginauthapi.services.RefreshTokenService;
+import com.example.loginauthapi.services.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// low costs keep the hashing quick; what matters is only that the stored cost differs from the configured one
+class AuthControllerRehashTest {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private final UserService userService = Mockito.mock(UserService.class);
+    private PasswordEncoder passwordEncoder;
+    private PasswordHashingService passwordHashingService;
+    private AuthController authController;
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(passwordHashingService, "shutdown");
+    }
+
+    @Test
+    void aBcryptHashWithAnotherCostIsRehashedOnLogin() {
+        configure("bcrypt");
+
+        login("{bcrypt}" + new BCryptPasswordEncoder(4).encode(PASSWORD));
+
+        String rehashed = updatedPassword();
+        assertThat(rehashed).startsWith("{bcrypt}$2a$05$");
+        assertThat(passwordEncoder.matches(PASSWORD, rehashed)).isTrue();
+    }
+
+    @Test
+    void aPbkdf2HashWithFewerIterationsIsRehashedOnLogin() {
+        configure("pbkdf2");
+
+        login("{pbkdf2}1000$" + pbkdf2(1000).encode(PASSWORD));
+
+        String rehashed = updatedPassword();
+        assertThat(rehashed).startsWith("{pbkdf2}2000$");
+        assertThat(passwordEncoder.matches(PASSWORD, rehashed)).isTrue();
+        assertThat(passwordEncoder.upgradeEncoding(rehashed)).isFalse();
+    }
+
+    @Test
+    void aPbkdf2HashFromBeforeTheIterationsWereStoredIsRehashedOnLogin() {
+        configure("pbkdf2");
+
+        login("{pbkdf2}" + pbkdf2(2000).encode(PASSWORD));
+
+        assertThat(updatedPassword()).startsWith("{pbkdf2}2000$");
+    }
+
+    @Test
+    void aPbkdf2HashWithTheConfiguredIterationsIsLeftAlone() {
+        configure("pbkdf2");
+
+        login(passwordEncoder.encode(PASSWORD));
+
+        verify(userService, never()).updatePassword(any(), anyString());
+    }
+
+    private void configure(String encoderId) {
+        SecurityConfig securityConfig = new SecurityConfig();
+        ReflectionTestUtils.setField(securityConfig, "passwordEncoderId", encoderId);
+        ReflectionTestUtils.setField(securityConfig, "bcryptStrength", 5);
+        ReflectionTestUtils.setField(securityConfig, "pbkdf2Iterations", 2000);
+        ReflectionTestUtils.setField(securityConfig, "argon2MemoryKib", 1024);
+        ReflectionTestUtils.setField(securityConfig, "argon2Iterations", 1);
+        ReflectionTestUtils.setField(securityConfig, "argon2Parallelism", 1);
+        passwordEncoder = securityConfig.passwordEncoder();
+        passwordHashingService = new PasswordHashingService(passwordEncoder, 1, 8, new SimpleMeterRegistry());
+        authController = new AuthController(userService, passwordHashingService, Mockito.mock(TokenService.class),
+                Mockito.mock(RefreshTokenService.class), new TaskExecutorAdapter(Runnable::run), Mockito.mock(ErrorMetrics.class));
+    }
+
+    private void login(String storedHash) {
+        when(userService.findByEmail("rehash@example.com"))
+                .thenReturn(Optional.of(new UserCredentials("user-1", "rehash@example.com", "Rehash", storedHash)));
+
+        assertThat(authController.login(new AuthLoginRequestDTO("rehash@example.com", PASSWORD)).join().getStatusCode().value())
+                .isEqualTo(200);
+    }
+
+    // the rehash is written after the response, off the request
+    private String updatedPassword() {
+        ArgumentCaptor<String> encoded = ArgumentCaptor.forClass(String.class);
+        verify(userService, timeout(5000)).updatePassword(any(), encoded.capture());
+        return encoded.getValue();
+    }
+
+    private static Pbkdf2PasswordEncoder pbkdf2(int iterations) {
+        return new Pbkdf2PasswordEncoder("", 16, iterations, Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.loginauthapi.controllers;
+
+import com.example.loginauthapi.domain.shift.Shift;
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.dto.shift.ShiftBatchRequestDTO;
+import com.example.loginauthapi.dto.shift.ShiftBatchUpdateDTO;
+import com.example.loginauthapi.dto.shift.ShiftRequestDTO;
+import com.example.loginauthapi.dto.shift.ShiftResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftTemplateRequestDTO;
+import com.example.loginauthapi.infra.security.AuthenticatedUser;
+import com.example.loginauthapi.repositories.ShiftRepository;
+import com.example.loginauthapi.repositories.UserRepository;
+import com.example.loginauthapi.services.ShiftService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// the writes go through the controllers with the second-level cache on, and the reads that follow must see them
+@SpringBootTest(properties = {"api.jpa.cache.enabled=true", "api.shifts.archive.enabled=false"})
+class ShiftControllerCacheTest {
+
+    @Autowired
+    ShiftController shiftController;
+    @Autowired
+    ShiftTemplateController shiftTemplateController;
+    @Autowired
+    ShiftService shiftService;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    ShiftRepository shiftRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    private AuthenticatedUser user;
+    private LocalDateTime start;
+
+    @BeforeEach
+    void setUp() {
+        User owner = new User();
+        owner.setName("Cache Test");
+        owner.setEmail("cache-test-" + UUID.randomUUID() + "@example.com");
+        owner.setPassword("x");
+        owner = userRepository.save(owner);
+        user = new AuthenticatedUser(owner.getId(), owner.getEmail());
+        start = LocalDate.now().plusDays(10).atTime(8, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop table if exists shift_y2000m01");
+        jdbcTemplate.update("delete from shift_archive where user_id = ?", user.id());
+        jdbcTemplate.update("delete from shift where user_id = ?", user.id());
+        jdbcTemplate.update("delete from shift_template where user_id = ?", user.id());
+        jdbcTemplate.update("delete from location where user_id = ?", user.id());
+        jdbcTemplate.update("delete from users where id = ?", user.id());
+    }
+
+    @Test
+    void updatesAndDeletesAreSeenByTheNextRead() {
+        long id = shiftController.createShift(user, new ShiftRequestDTO(start, start.plusHours(12), 100, "UPA")).getBody().id();
+        assertThat(shiftService.findById(id)).get().extracting(Shift::getValue).isEqualTo(100.0);
+        assertThat(entityManagerFactory.getCache().contains(Shift.class, id)).isTrue();
+        String etag = shiftController.getAll(user, null).getHeaders().getETag();
+
+        shiftController.updateShift(user, id, new ShiftRequestDTO(start, start.plusHours(6), 250, "UTI"));
+
+        assertThat(shiftService.findById(id)).get().extracting(Shift::getValue, Shift::getLocation).containsExactly(250.0, "UTI");
+        ResponseEntity<List<ShiftResponseDTO>> all = shiftController.getAll(user, etag);
+        assertThat(all.getStatusCode().value()).isEqualTo(200);
+        assertThat(all.getBody()).extracting(ShiftResponseDTO::value).containsExactly(250.0);
+
+        shiftController.deleteShift(user, id);
+
+        assertThat(shiftService.findById(id)).get().extracting(Shift::isCancelled).isEqualTo(true);
+        assertThat(shiftController.getAll(user, null).getBody()).isEmpty();
+    }
+
+    @Test
+    void cachedListsAreDroppedByEveryKindOfWrite() {
+        long first = shiftController.createShift(user, new ShiftRequestDTO(start, start.plusHours(12), 100, "UPA")).getBody().id();
+        assertThat(values()).containsExactly(100.0);
+        long hits = statistics().getQueryCacheHitCount();
+        assertThat(values()).containsExactly(100.0);
+        assertThat(statistics().getQueryCacheHitCount()).isEqualTo(hits + 1);
+
+        shiftController.createShift(user, new ShiftRequestDTO(start.plusDays(1), start.plusDays(1).plusHours(12), 110, "UPA"));
+        assertThat(values()).containsExactlyInAnyOrder(100.0, 110.0);
+
+        shiftController.updateShift(user, first, new ShiftRequestDTO(start, start.plusHours(6), 120, "UPA"));
+        assertThat(values()).containsExactlyInAnyOrder(120.0, 110.0);
+
+        shiftController.batch(user, new ShiftBatchRequestDTO(
+                List.of(new ShiftRequestDTO(start.plusDays(2), start.plusDays(2).plusHours(12), 130, "UPA")),
+                List.of(new ShiftBatchUpdateDTO(first, new ShiftRequestDTO(start, start.plusHours(6), 140, "UPA"))),
+                List.of()));
+        assertThat(values()).containsExactlyInAnyOrder(140.0, 110.0, 130.0);
+
+        shiftController.deleteShift(user, first);
+        assertThat(values()).containsExactlyInAnyOrder(110.0, 130.0);
+    }
+
+    @Test
+    void aCachedListIsDroppedWhenItsMonthIsArchived() {
+        // a month of its own, written around the cache so only the archive statement can drop what was cached
+        jdbcTemplate.execute("create table shift_y2000m01 partition of shift for values from ('2000-01-01') to ('2000-02-01')");
+        jdbcTemplate.update("""
+                insert into shift (id, start_time, end_time, value, location, user_id, cancelled, sync_version)
+                values (nextval('shift_seq'), '2000-01-20 08:00', '2000-01-20 20:00', 90, 'UPA', ?, false, 0)
+                """, user.id());
+        assertThat(values()).containsExactly(90.0);
+        long hits = statistics().getQueryCacheHitCount();
+        assertThat(values()).containsExactly(90.0);
+        assertThat(statistics().getQueryCacheHitCount()).isEqualTo(hits + 1);
+
+        transactionTemplate.executeWithoutResult(status ->
+                shiftRepository.archiveMonth(LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2000, 2, 1, 0, 0)));
+
+        assertThat(values()).isEmpty();
+    }
+
+    @Test
+    void deletingATemplateDetachesItsCachedOccurrences() {
+        ShiftTemplateRequestDTO daily = new ShiftTemplateRequestDTO(Set.of(DayOfWeek.values()), 1, LocalTime.of(8, 0), 12 * 60, 100, "UPA",
+                start.toLocalDate(), null);
+        long templateId = shiftTemplateController.create(user, daily).getBody().id();
+        long id = shiftTemplateController.overrideOccurrence(user, templateId, start.toLocalDate(),
+                new ShiftRequestDTO(start, start.plusHours(6), 150, "UPA")).getBody().id();
+        assertThat(shiftService.findById(id)).get().extracting(Shift::getTemplate).isNotNull();
+        assertThat(entityManagerFactory.getCache().contains(Shift.class, id)).isTrue();
+
+        // a bulk update, which goes around the cached entity
+        shiftTemplateController.delete(user, templateId);
+
+        assertThat(shiftService.findById(id)).get().extracting(Shift::getTemplate, Shift::getOccurrenceDate).containsExactly(null, null);
+    }
+
+    private List<Double> values() {
+        return shiftController.getAll(user, null).getBody().stream().map(ShiftResponseDTO::value).toList();
+    }
+
+    private Statistics statistics() {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+}
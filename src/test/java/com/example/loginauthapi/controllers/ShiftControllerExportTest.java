@@ -0,0 +1,84 @@
+package com.example.loginauthapi.controllers;
+
+import com.example.loginauthapi.dto.shift.ShiftExportFormat;
+import com.example.loginauthapi.infra.metrics.ErrorMetrics;
+import com.example.loginauthapi.infra.security.AuthenticatedUser;
+import com.example.loginauthapi.services.ShiftExportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+class ShiftControllerExportTest {
+
+    private static final String CSV = "id,start\n1,2024-01-01T08:00\n";
+
+    private final AuthenticatedUser user = new AuthenticatedUser("user-1", "export@example.com");
+    private ShiftController shiftController;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ShiftExportService shiftExportService = Mockito.mock(ShiftExportService.class);
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(4).write(CSV.getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(shiftExportService).export(eq("user-1"), any(), any(), eq(ShiftExportFormat.CSV), any());
+
+        shiftController = new ShiftController();
+        shiftController.shiftExportService = shiftExportService;
+        shiftController.errorMetrics = Mockito.mock(ErrorMetrics.class);
+        ReflectionTestUtils.setField(shiftController, "exportTimeout", Duration.ofMinutes(10));
+    }
+
+    @Test
+    void gzipIsUsedWhenTheClientAcceptsIt() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = export("br, gzip;q=0.8");
+
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body(response)))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo(CSV);
+        }
+    }
+
+    @Test
+    void gzipWithAZeroWeightIsRefused() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = export("gzip;q=0, identity");
+
+        assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(new String(body(response), StandardCharsets.UTF_8)).isEqualTo(CSV);
+    }
+
+    @Test
+    void aCodingThatOnlyMentionsGzipIsNotGzip() throws Exception {
+        ResponseEntity<StreamingResponseBody> response = export("x-gzip-like, identity");
+
+        assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+        assertThat(new String(body(response), StandardCharsets.UTF_8)).isEqualTo(CSV);
+    }
+
+    private ResponseEntity<StreamingResponseBody> export(String acceptEncoding) {
+        return shiftController.export(user, null, null, ShiftExportFormat.CSV, acceptEncoding, new MockHttpServletRequest());
+    }
+
+    private static byte[] body(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+}
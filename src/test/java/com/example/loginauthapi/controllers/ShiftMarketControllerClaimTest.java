@@ -0,0 +1,154 @@
+package com.example.loginauthapi.controllers;
+
+import com.example.loginauthapi.domain.market.ShiftOffer;
+import com.example.loginauthapi.domain.market.ShiftOfferStatus;
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.dto.market.ShiftOfferRequestDTO;
+import com.example.loginauthapi.dto.shift.ShiftResponseDTO;
+import com.example.loginauthapi.infra.security.AuthenticatedUser;
+import com.example.loginauthapi.repositories.ShiftOfferRepository;
+import com.example.loginauthapi.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// claims go through the controller against the database, since the version check is the update postgres runs
+@SpringBootTest(properties = "api.shifts.archive.enabled=false")
+class ShiftMarketControllerClaimTest {
+
+    @Autowired
+    ShiftMarketController shiftMarketController;
+    @Autowired
+    ShiftOfferRepository shiftOfferRepository;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final List<String> userIds = new ArrayList<>();
+    private ExecutorService pool;
+    private long offerId;
+
+    @BeforeEach
+    void setUp() {
+        pool = Executors.newFixedThreadPool(8);
+        LocalDateTime start = LocalDate.now().plusDays(10).atTime(8, 0);
+        offerId = shiftMarketController.post(user(), new ShiftOfferRequestDTO(start, start.plusHours(12), 100, "UPA")).getBody().id();
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        for (String userId : userIds) {
+            jdbcTemplate.update("delete from shift_offer where poster_id = ?", userId);
+            jdbcTemplate.update("delete from shift where user_id = ?", userId);
+            jdbcTemplate.update("delete from location where user_id = ?", userId);
+            jdbcTemplate.update("delete from users where id = ?", userId);
+        }
+    }
+
+    @Test
+    void ofTwoClaimsThatReadTheSameVersionOnlyOneCommits() throws Exception {
+        AuthenticatedUser first = user();
+        AuthenticatedUser second = user();
+        // both load the open offer before either writes, so the loser only finds out from the version check
+        CyclicBarrier bothRead = new CyclicBarrier(2);
+
+        Future<ResponseEntity<ShiftResponseDTO>> firstClaim = pool.submit(() -> claimAfterReading(first, bothRead));
+        Future<ResponseEntity<ShiftResponseDTO>> secondClaim = pool.submit(() -> claimAfterReading(second, bothRead));
+        List<Integer> statuses = List.of(firstClaim.get(30, TimeUnit.SECONDS).getStatusCode().value(),
+                secondClaim.get(30, TimeUnit.SECONDS).getStatusCode().value());
+
+        assertThat(statuses).containsExactlyInAnyOrder(200, 409);
+        assertWonByOneOf(List.of(first, second));
+    }
+
+    @Test
+    void aRushOfClaimsHasExactlyOneWinner() throws Exception {
+        List<AuthenticatedUser> claimers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) claimers.add(user());
+        CountDownLatch go = new CountDownLatch(1);
+
+        List<Future<ResponseEntity<ShiftResponseDTO>>> claims = new ArrayList<>();
+        for (AuthenticatedUser claimer : claimers) {
+            claims.add(pool.submit(() -> {
+                go.await();
+                return shiftMarketController.claim(claimer, offerId);
+            }));
+        }
+        go.countDown();
+        List<Integer> statuses = new ArrayList<>();
+        for (Future<ResponseEntity<ShiftResponseDTO>> claim : claims) statuses.add(claim.get(30, TimeUnit.SECONDS).getStatusCode().value());
+
+        assertThat(statuses).containsOnly(200, 409).filteredOn(status -> status == 200).hasSize(1);
+        assertWonByOneOf(claimers);
+    }
+
+    // the claim joins a transaction that already holds the offer, as it was before the other claim wrote it
+    private ResponseEntity<ShiftResponseDTO> claimAfterReading(AuthenticatedUser claimer, CyclicBarrier bothRead) {
+        List<ResponseEntity<ShiftResponseDTO>> response = new ArrayList<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                shiftOfferRepository.findById(offerId).orElseThrow();
+                try {
+                    bothRead.await(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+                response.add(shiftMarketController.claim(claimer, offerId));
+            });
+        } catch (UnexpectedRollbackException e) {
+            // the losing claim marked the transaction rollback-only, its response was already given
+        }
+        return response.get(0);
+    }
+
+    private void assertWonByOneOf(List<AuthenticatedUser> claimers) {
+        ShiftOffer offer = transactionTemplate.execute(status -> {
+            ShiftOffer claimed = shiftOfferRepository.findById(offerId).orElseThrow();
+            claimed.getClaimedBy().getId();
+            return claimed;
+        });
+        assertThat(offer.getStatus()).isEqualTo(ShiftOfferStatus.CLAIMED);
+        assertThat(offer.getClaimedBy().getId()).isIn(claimers.stream().map(AuthenticatedUser::id).toList());
+
+        Integer shifts = jdbcTemplate.queryForObject("select count(*) from shift where user_id = any(?)", Integer.class,
+                (Object) claimers.stream().map(AuthenticatedUser::id).toArray(String[]::new));
+        assertThat(shifts).isEqualTo(1);
+    }
+
+    private AuthenticatedUser user() {
+        User user = new User();
+        user.setName("Market Test");
+        user.setEmail("market-test-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("x");
+        user.setState("SP");
+        user.setCity("Campinas");
+        user.setProfessionalType(1);
+        user = userRepository.save(user);
+        userIds.add(user.getId());
+        return new AuthenticatedUser(user.getId(), user.getEmail());
+    }
+}
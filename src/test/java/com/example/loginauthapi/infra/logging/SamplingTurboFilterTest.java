@@ -0,0 +1,64 @@
+package com.example.loginauthapi.infra.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SamplingTurboFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @Test
+    void anUnsampledStatementIsNotEnabledSoItIsNeverBuilt() {
+        Logger sql = logger("org.hibernate.SQL", 0.0);
+
+        assertThat(sql.isDebugEnabled()).isFalse();
+        sql.debug("select 1");
+
+        assertThat(appender.list).isEmpty();
+    }
+
+    @Test
+    void aStatementThatWasCheckedFirstIsSampledOnce() {
+        Logger sql = logger("org.hibernate.SQL", 0.5);
+
+        for (int i = 0; i < 10_000; i++) {
+            // the way hibernate logs through jboss-logging, which checks the level once more itself
+            if (sql.isDebugEnabled() && sql.isDebugEnabled()) sql.debug("select {}", i);
+        }
+
+        assertThat(appender.list.size()).isBetween(4_500, 5_500);
+    }
+
+    @Test
+    void otherLoggersAreLeftAlone() {
+        Logger other = logger("org.hibernate.SQL_SLOW", 0.0);
+
+        assertThat(other.isDebugEnabled()).isTrue();
+        other.debug("select 1");
+
+        assertThat(appender.list).hasSize(1);
+    }
+
+    private Logger logger(String name, double rate) {
+        SamplingTurboFilter filter = new SamplingTurboFilter();
+        filter.setContext(context);
+        filter.setLoggerName("org.hibernate.SQL");
+        filter.setRate(rate);
+        filter.start();
+        context.addTurboFilter(filter);
+
+        appender.setContext(context);
+        appender.start();
+        Logger logger = context.getLogger(name);
+        logger.setLevel(Level.DEBUG);
+        logger.addAppender(appender);
+        return logger;
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.loginauthapi.infra.persistence;
+
+import com.example.loginauthapi.infra.security.AuthenticatedUser;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private HikariDataSource primary;
+    private Connection primaryConnection;
+    private DataSource replica;
+    private Connection replicaConnection;
+    private ResultSet lag;
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        meterRegistry = new SimpleMeterRegistry();
+        primary = Mockito.mock(HikariDataSource.class);
+        primaryConnection = Mockito.mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        // a replica whose health check reports whatever lag the test sets
+        replica = Mockito.mock(DataSource.class);
+        replicaConnection = Mockito.mock(Connection.class);
+        Statement statement = Mockito.mock(Statement.class);
+        lag = Mockito.mock(ResultSet.class);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        when(replicaConnection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(lag);
+        when(lag.getDouble(anyInt())).thenReturn(0.5);
+
+        // the first health check runs at once; the test runs the later ones itself
+        routing = new ReplicaRoutingDataSource(primary, List.of(replica), Duration.ofSeconds(5), Duration.ofSeconds(10),
+                Duration.ofHours(1), 100, meterRegistry);
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (lagGauge() < 0 && System.nanoTime() < deadline) Thread.sleep(10);
+        // the gauge moves before the replica is marked healthy, so one more check settles it
+        checkReplicas();
+        assertThat(lagGauge()).isEqualTo(0.5);
+
+        signIn("u-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        routing.close();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyWorkGoesToAHealthyReplicaAndWritesToThePrimary() throws SQLException {
+        // the proxy reads the connection defaults from the primary on first use, which happens at startup, as nobody
+        SecurityContextHolder.clearContext();
+        DataSource dataSource = new ReplicaRoutingConfig().dataSource(primary, routing);
+        dataSource.getConnection().close();
+        signIn("u-1");
+
+        try (Connection read = dataSource.getConnection()) {
+            read.setReadOnly(true);
+            read.prepareStatement("select 1");
+            assertThat(unwrap(read)).isSameAs(replicaConnection);
+        }
+        signIn("u-2");
+        try (Connection write = dataSource.getConnection()) {
+            write.prepareStatement("update shift set value = 1");
+            assertThat(unwrap(write)).isSameAs(primaryConnection);
+        }
+        assertThat(routed("replica")).isEqualTo(1);
+    }
+
+    @Test
+    void aUserWhoJustWroteReadsFromThePrimary() throws SQLException {
+        routing.recordWrite();
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+        assertThat(routed("primary-recent-write")).isEqualTo(1);
+
+        // other users are not pinned by it
+        signIn("u-2");
+        assertThat(routing.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void theWindowEnds() throws SQLException {
+        ReflectionTestUtils.setField(routing, "readYourWritesWindow", Duration.ofMillis(-1));
+        routing.recordWrite();
+
+        assertThat(routing.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void aLaggingReplicaIsSkippedUntilItCatchesUp() throws SQLException {
+        when(lag.getDouble(anyInt())).thenReturn(30.0);
+        checkReplicas();
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+        assertThat(routed("primary-fallback")).isEqualTo(1);
+
+        when(lag.getDouble(anyInt())).thenReturn(1.0);
+        checkReplicas();
+
+        assertThat(routing.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    void aReplicaThatFailsTheHealthCheckIsSkipped() throws SQLException {
+        when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+        checkReplicas();
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+        assertThat(lagGauge()).isEqualTo(-1);
+    }
+
+    @Test
+    void aReplicaThatGoesDownBetweenChecksFallsBackToThePrimaryAtOnce() throws SQLException {
+        Mockito.clearInvocations(replica);
+        when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+        // marked unhealthy, so the next read does not try it again before the health check does
+        assertThat(routing.getConnection()).isSameAs(primaryConnection);
+        Mockito.verify(replica, Mockito.times(1)).getConnection();
+    }
+
+    private void checkReplicas() {
+        ReflectionTestUtils.invokeMethod(routing, "checkReplicas");
+    }
+
+    private double lagGauge() {
+        return meterRegistry.get("db.replica.lag").gauge().value();
+    }
+
+    private double routed(String target) {
+        return meterRegistry.get("db.replica.routing").tag("target", target).counter().count();
+    }
+
+    private static Connection unwrap(Connection proxy) {
+        return ((ConnectionProxy) proxy).getTargetConnection();
+    }
+
+    private static void signIn(String userId) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new AuthenticatedUser(userId, userId + "@example.com"), null, List.of()));
+    }
+}
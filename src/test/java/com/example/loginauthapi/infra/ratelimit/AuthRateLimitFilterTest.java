@@ -0,0 +1,79 @@
+package com.example.loginauthapi.infra.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AuthRateLimitFilterTest {
+
+    private final AuthRateLimitFilter filter = new AuthRateLimitFilter(true, 20, Duration.ofMinutes(1), 2, Duration.ofMinutes(1), 1000,
+            new ObjectMapper(), new SimpleMeterRegistry());
+
+    @Test
+    void theSameEmailFromDifferentAddressesIsThrottled() throws Exception {
+        assertThat(login("10.0.0.1", "Ana@Example.com").getStatus()).isEqualTo(200);
+        assertThat(login("10.0.0.2", "ana@example.com ").getStatus()).isEqualTo(200);
+
+        MockHttpServletResponse refused = login("10.0.0.3", "ana@example.com");
+
+        assertThat(refused.getStatus()).isEqualTo(429);
+        assertThat(refused.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+    }
+
+    @Test
+    void theBodyCanStillBeReadWithAReadListener() throws Exception {
+        AtomicReference<ServletRequest> passedOn = new AtomicReference<>();
+        filter.doFilter(request("10.0.0.1", "ana@example.com"), new MockHttpServletResponse(), (req, res) -> passedOn.set(req));
+
+        List<String> events = new ArrayList<>();
+        var in = passedOn.get().getInputStream();
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() {
+                events.add("available");
+            }
+
+            @Override
+            public void onAllDataRead() {
+                events.add("done");
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                events.add("error");
+            }
+        });
+
+        assertThat(events).containsExactly("available", "done");
+        assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).contains("ana@example.com");
+        assertThat(in.isFinished()).isTrue();
+    }
+
+    private MockHttpServletResponse login(String address, String email) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(address, email), response, (req, res) -> { });
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String address, String email) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setServletPath("/auth/login");
+        request.setRemoteAddr(address);
+        request.setContentType("application/json");
+        request.setContent(("{\"email\":\"" + email + "\",\"password\":\"x\"}").getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.loginauthapi.infra.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimiterTest {
+
+    @Test
+    void grantsAFullBurstThenSaysHowLongToWait() {
+        RateLimiter limiter = new RateLimiter(5, Duration.ofMinutes(1), 100);
+
+        for (int i = 0; i < 5; i++) assertThat(limiter.tryAcquire("k")).isZero();
+        Duration wait = limiter.tryAcquire("k");
+
+        // one token comes back every 12 seconds
+        assertThat(wait).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(12));
+    }
+
+    @Test
+    void aRefusedAttemptDoesNotCostAToken() {
+        RateLimiter limiter = new RateLimiter(1, Duration.ofMinutes(1), 100);
+        limiter.tryAcquire("k");
+
+        Duration first = limiter.tryAcquire("k");
+        Duration second = limiter.tryAcquire("k");
+
+        assertThat(second).isLessThanOrEqualTo(first);
+    }
+
+    @Test
+    void refillsOverTime() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(2, Duration.ofMillis(100), 100);
+        limiter.tryAcquire("k");
+        limiter.tryAcquire("k");
+        assertThat(limiter.tryAcquire("k")).isPositive();
+
+        Thread.sleep(60);
+
+        assertThat(limiter.tryAcquire("k")).isZero();
+    }
+
+    @Test
+    void keysHaveTheirOwnBuckets() {
+        RateLimiter limiter = new RateLimiter(1, Duration.ofMinutes(1), 100);
+
+        assertThat(limiter.tryAcquire("a")).isZero();
+        assertThat(limiter.tryAcquire("a")).isPositive();
+        assertThat(limiter.tryAcquire("b")).isZero();
+    }
+
+    @Test
+    void staysWithinMaxKeysWhenEveryKeyIsThrottled() {
+        RateLimiter limiter = new RateLimiter(1, Duration.ofMinutes(1), 10);
+
+        for (int i = 0; i < 1000; i++) limiter.tryAcquire("k" + i);
+
+        assertThat(limiter.size()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void concurrentCallersNeverGetMoreThanTheBurst() throws Exception {
+        RateLimiter limiter = new RateLimiter(100, Duration.ofHours(1), 100);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> callers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                callers.add(() -> {
+                    int granted = 0;
+                    for (int i = 0; i < 1000; i++) if (limiter.tryAcquire("k").isZero()) granted++;
+                    return granted;
+                });
+            }
+            int granted = 0;
+            for (Future<Integer> result : pool.invokeAll(callers)) granted += result.get();
+
+            assertThat(granted).isEqualTo(100);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsBucketsThatCouldNeverGrantAnything() {
+        assertThatThrownBy(() -> new RateLimiter(0, Duration.ofMinutes(1), 100)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new RateLimiter(5, Duration.ZERO, 100)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.loginauthapi.infra.security;
+
+import com.example.loginauthapi.domain.auth.RevokedToken;
+import com.example.loginauthapi.infra.cache.BloomFilter;
+import com.example.loginauthapi.repositories.RefreshTokenRepository;
+import com.example.loginauthapi.repositories.RevokedTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenRevocationServiceTest {
+
+    private RevokedTokenRepository revokedTokenRepository;
+    private RefreshTokenRepository refreshTokenRepository;
+    private TokenRevocationService tokenRevocationService;
+
+    @BeforeEach
+    void setUp() {
+        revokedTokenRepository = Mockito.mock(RevokedTokenRepository.class);
+        refreshTokenRepository = Mockito.mock(RefreshTokenRepository.class);
+        tokenRevocationService = new TokenRevocationService();
+        ReflectionTestUtils.setField(tokenRevocationService, "revokedTokenRepository", revokedTokenRepository);
+        ReflectionTestUtils.setField(tokenRevocationService, "refreshTokenRepository", refreshTokenRepository);
+        ReflectionTestUtils.setField(tokenRevocationService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(tokenRevocationService, "expectedSize", 100);
+        ReflectionTestUtils.setField(tokenRevocationService, "falsePositiveRate", 0.01);
+        // the tests refresh by hand
+        ReflectionTestUtils.setField(tokenRevocationService, "refreshInterval", Duration.ofHours(1));
+        ReflectionTestUtils.setField(tokenRevocationService, "refreshOverlap", Duration.ofMinutes(1));
+        tokenRevocationService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        tokenRevocationService.close();
+    }
+
+    @Test
+    void everyRefreshPrunesExpiredRefreshTokens() {
+        Mockito.clearInvocations(refreshTokenRepository);
+
+        tokenRevocationService.refresh();
+
+        verify(refreshTokenRepository).deleteExpired(any(Instant.class));
+    }
+
+    @Test
+    void aRevokedTokenIsRevokedAtOnceAndStoredForTheOtherNodes() {
+        tokenRevocationService.revoke("jti-1", Instant.now().plusSeconds(60));
+
+        assertThat(tokenRevocationService.isRevoked("jti-1")).isTrue();
+        assertThat(tokenRevocationService.isRevoked("jti-2")).isFalse();
+        assertThat(tokenRevocationService.isRevoked(null)).isFalse();
+        verify(revokedTokenRepository).save(any(RevokedToken.class));
+    }
+
+    @Test
+    void aTokenThatAlreadyExpiredNeedsNoRevoking() {
+        tokenRevocationService.revoke("jti-1", Instant.now().minusSeconds(1));
+
+        assertThat(tokenRevocationService.isRevoked("jti-1")).isFalse();
+        verify(revokedTokenRepository, never()).save(any());
+    }
+
+    @Test
+    void revocationsFromOtherNodesArriveWithTheNextRefresh() {
+        Instant now = Instant.now();
+        when(revokedTokenRepository.findRevokedSince(any(), any())).thenReturn(List.of(new RevokedToken("jti-1", now.plusSeconds(60), now)));
+
+        tokenRevocationService.refresh();
+
+        assertThat(tokenRevocationService.isRevoked("jti-1")).isTrue();
+    }
+
+    @Test
+    void expiredEntriesAreDroppedAndTheFilterRebuiltWithoutThem() throws InterruptedException {
+        tokenRevocationService.revoke("short", Instant.now().plusMillis(50));
+        tokenRevocationService.revoke("long", Instant.now().plusSeconds(60));
+        BloomFilter before = filter();
+
+        Thread.sleep(100);
+        tokenRevocationService.refresh();
+
+        assertThat(tokenRevocationService.isRevoked("short")).isFalse();
+        assertThat(tokenRevocationService.isRevoked("long")).isTrue();
+        assertThat(filter()).isNotSameAs(before);
+        assertThat(filter().mightContain("long")).isTrue();
+    }
+
+    @Test
+    void outgrowingTheExpectedSizeRebuildsABiggerFilterWithEverything() {
+        List<String> jtis = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            String jti = UUID.randomUUID().toString();
+            jtis.add(jti);
+            tokenRevocationService.revoke(jti, Instant.now().plusSeconds(60));
+        }
+
+        assertThat(jtis).allMatch(tokenRevocationService::isRevoked);
+        assertThat((int) ReflectionTestUtils.getField(tokenRevocationService, "filterCapacity")).isEqualTo(202);
+    }
+
+    @Test
+    void aFailedRefreshKeepsTheCurrentList() {
+        tokenRevocationService.revoke("jti-1", Instant.now().plusSeconds(60));
+        when(revokedTokenRepository.findRevokedSince(any(), any())).thenThrow(new IllegalStateException("database down"));
+
+        tokenRevocationService.refresh();
+
+        assertThat(tokenRevocationService.isRevoked("jti-1")).isTrue();
+    }
+
+    private BloomFilter filter() {
+        return (BloomFilter) ReflectionTestUtils.getField(tokenRevocationService, "filter");
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.loginauthapi.infra.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncTimeoutConfigTest {
+
+    private MockHttpServletRequest servletRequest;
+    private StandardServletAsyncWebRequest request;
+    private CallableProcessingInterceptor interceptor;
+
+    @BeforeEach
+    void setUp() {
+        AsyncSupportConfigurer configurer = new AsyncSupportConfigurer();
+        new AsyncTimeoutConfig().configureAsyncSupport(configurer);
+        List<CallableProcessingInterceptor> interceptors = ReflectionTestUtils.invokeMethod(configurer, "getCallableInterceptors");
+        interceptor = interceptors.get(0);
+
+        servletRequest = new MockHttpServletRequest();
+        servletRequest.setAsyncSupported(true);
+        request = new StandardServletAsyncWebRequest(servletRequest, new MockHttpServletResponse());
+        // what the handler adapter applies from spring.mvc.async.request-timeout
+        request.setTimeout(30_000L);
+    }
+
+    @Test
+    void aHandlerThatAsksForMoreTimeGetsIt() throws Exception {
+        servletRequest.setAttribute(AsyncTimeoutConfig.TIMEOUT, Duration.ofMinutes(10));
+
+        interceptor.beforeConcurrentHandling(request, () -> null);
+        request.startAsync();
+
+        assertThat(servletRequest.getAsyncContext().getTimeout()).isEqualTo(Duration.ofMinutes(10).toMillis());
+    }
+
+    @Test
+    void everythingElseKeepsTheDefault() throws Exception {
+        interceptor.beforeConcurrentHandling(request, () -> null);
+        request.startAsync();
+
+        assertThat(servletRequest.getAsyncContext().getTimeout()).isEqualTo(30_000L);
+    }
+}
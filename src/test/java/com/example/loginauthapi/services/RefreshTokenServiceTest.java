@@ -0,0 +1,123 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.auth.RefreshToken;
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.repositories.RefreshTokenRepository;
+import com.example.loginauthapi.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenServiceTest {
+
+    private RefreshTokenRepository refreshTokenRepository;
+    private RefreshTokenService refreshTokenService;
+    private User user;
+    // what the repository holds, by token hash
+    private final Map<String, RefreshToken> stored = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        refreshTokenRepository = Mockito.mock(RefreshTokenRepository.class);
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        refreshTokenService = new RefreshTokenService();
+        ReflectionTestUtils.setField(refreshTokenService, "refreshTokenRepository", refreshTokenRepository);
+        ReflectionTestUtils.setField(refreshTokenService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(refreshTokenService, "ttl", Duration.ofDays(30));
+
+        user = new User();
+        user.setId("u");
+        when(userRepository.getReferenceById("u")).thenReturn(user);
+        when(refreshTokenRepository.save(any())).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            stored.put(token.getTokenHash(), token);
+            return token;
+        });
+        when(refreshTokenRepository.findByTokenHashForUpdate(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(stored.get(invocation.<String>getArgument(0))));
+    }
+
+    @Test
+    void rotatingHandsOutANewTokenInTheSameFamilyAndUsesUpTheOldOne() {
+        String issued = refreshTokenService.issue("u");
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(issued);
+
+        assertThat(rotation.user()).isSameAs(user);
+        assertThat(rotation.refreshToken()).isNotEqualTo(issued);
+        ArgumentCaptor<RefreshToken> saved = ArgumentCaptor.forClass(RefreshToken.class);
+        verify(refreshTokenRepository, Mockito.times(2)).save(saved.capture());
+        RefreshToken first = saved.getAllValues().get(0);
+        RefreshToken second = saved.getAllValues().get(1);
+        assertThat(second.getFamily()).isEqualTo(first.getFamily());
+        assertThat(first.getUsedAt()).isNotNull();
+        assertThat(second.getUsedAt()).isNull();
+        // only the hash is stored
+        assertThat(stored).doesNotContainKey(issued);
+    }
+
+    @Test
+    void presentingAUsedTokenAgainRevokesTheWholeFamily() {
+        String issued = refreshTokenService.issue("u");
+        String family = stored.values().iterator().next().getFamily();
+        refreshTokenService.rotate(issued);
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(issued)).isInstanceOf(ResponseStatusException.class);
+
+        verify(refreshTokenRepository).revokeFamily(family);
+        verify(refreshTokenRepository, Mockito.times(2)).save(any());
+    }
+
+    @Test
+    void aRevokedTokenIsRefusedWithoutIssuingAnother() {
+        String issued = refreshTokenService.issue("u");
+        stored.values().forEach(token -> token.setRevoked(true));
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(issued)).isInstanceOf(ResponseStatusException.class);
+
+        verify(refreshTokenRepository, Mockito.times(1)).save(any());
+        verify(refreshTokenRepository, never()).revokeFamily(anyString());
+    }
+
+    @Test
+    void anExpiredTokenIsRefused() {
+        String issued = refreshTokenService.issue("u");
+        stored.values().forEach(token -> token.setExpiresAt(Instant.now().minusSeconds(1)));
+
+        assertThatThrownBy(() -> refreshTokenService.rotate(issued)).isInstanceOf(ResponseStatusException.class);
+        assertThat(stored.values()).allSatisfy(token -> assertThat(token.getUsedAt()).isNull());
+    }
+
+    @Test
+    void unknownTokensAreRefused() {
+        assertThatThrownBy(() -> refreshTokenService.rotate("made-up")).isInstanceOf(ResponseStatusException.class);
+        assertThatThrownBy(() -> refreshTokenService.rotate(null)).isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void logoutRevokesTheFamilyOfTheToken() {
+        String issued = refreshTokenService.issue("u");
+        String family = stored.values().iterator().next().getFamily();
+
+        refreshTokenService.revoke(issued);
+
+        verify(refreshTokenRepository).revokeFamily(family);
+    }
+}
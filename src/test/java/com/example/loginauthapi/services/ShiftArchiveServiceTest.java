@@ -0,0 +1,182 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.dto.shift.ShiftChangesResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftOccurrenceDTO;
+import com.example.loginauthapi.infra.persistence.ShiftPartitions;
+import com.example.loginauthapi.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// runs against a month of its own far before anything else in the database, attached just for the test, with the
+// second-level cache on so the users the archive updates around it are seen as updated
+@SpringBootTest(properties = {"api.jpa.cache.enabled=true", "api.shifts.archive.enabled=false"})
+class ShiftArchiveServiceTest {
+
+    private static final YearMonth MONTH = YearMonth.of(2000, 1);
+    private static final String PARTITION = "shift_y2000m01";
+
+    @Autowired
+    ShiftArchiveService shiftArchiveService;
+    @Autowired
+    ShiftService shiftService;
+    @Autowired
+    ShiftPartitions shiftPartitions;
+    @Autowired
+    UserRepository userRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    DataSource dataSource;
+
+    private String userId;
+    private long templateId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("create table if not exists " + PARTITION + " partition of shift for values from ('2000-01-01') to ('2000-02-01')");
+        jdbcTemplate.update("delete from shift_archived_month where month = ?", MONTH.atDay(1));
+        shiftPartitions.refresh();
+
+        User user = new User();
+        user.setName("Archive Test");
+        user.setEmail("archive-test-" + UUID.randomUUID() + "@example.com");
+        user.setPassword("x");
+        // the version the rows below were written with
+        user.setShiftsVersion(1);
+        userId = userRepository.save(user).getId();
+
+        // every day from the 1st to the 10th at 08:00 for 12 hours
+        templateId = jdbcTemplate.queryForObject("""
+                insert into shift_template (days_of_week, interval_weeks, start_time, duration_minutes, value, location,
+                                            start_date, end_date, user_id, deleted, sync_version)
+                values (127, 1, '08:00', 720, 100, 'UPA', '2000-01-01', '2000-01-10', ?, false, 1)
+                returning id
+                """, Long.class, userId);
+        insertShift(LocalDate.of(2000, 1, 3), 100, true);
+        insertShift(LocalDate.of(2000, 1, 5), 250, false);
+        jdbcTemplate.update("""
+                insert into shift (id, start_time, end_time, value, location, user_id, cancelled, sync_version)
+                values (nextval('shift_seq'), '2000-01-20 19:00', '2000-01-21 07:00', 120, 'Hospital Sul', ?, false, 1)
+                """, userId);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("drop table if exists " + PARTITION);
+        jdbcTemplate.update("delete from shift_archived_month where month = ?", MONTH.atDay(1));
+        jdbcTemplate.update("delete from shift_archive where user_id = ?", userId);
+        jdbcTemplate.update("delete from shift_template where user_id = ?", userId);
+        jdbcTemplate.update("delete from location where user_id = ?", userId);
+        jdbcTemplate.update("delete from users where id = ?", userId);
+        shiftPartitions.refresh();
+    }
+
+    @Test
+    void aMonthWhoseDropFailedIsNotWrittenOutTwice() throws Exception {
+        // a long read on the month keeps the drop from getting its lock, after the move already committed
+        try (Connection reader = dataSource.getConnection(); Statement statement = reader.createStatement()) {
+            reader.setAutoCommit(false);
+            statement.execute("lock table " + PARTITION + " in access share mode");
+
+            assertThatThrownBy(() -> shiftArchiveService.archive(MONTH)).isInstanceOf(RuntimeException.class);
+            reader.rollback();
+        }
+        assertThat(shiftPartitions.months()).startsWith(MONTH);
+
+        assertThat(shiftArchiveService.archive(MONTH)).isTrue();
+
+        assertThat(shiftPartitions.months()).doesNotContain(MONTH);
+        List<ShiftOccurrenceDTO> archived = shiftArchiveService.findHistory(userId, LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2000, 2, 1, 0, 0));
+        // the cancelled 3rd stays out and the overridden 5th is there once, as overridden
+        assertThat(archived).filteredOn(occurrence -> occurrence.templateId() != null)
+                .extracting(ShiftOccurrenceDTO::occurrenceDate)
+                .containsExactly(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 1, 2), LocalDate.of(2000, 1, 4), LocalDate.of(2000, 1, 5),
+                        LocalDate.of(2000, 1, 6), LocalDate.of(2000, 1, 7), LocalDate.of(2000, 1, 8), LocalDate.of(2000, 1, 9),
+                        LocalDate.of(2000, 1, 10));
+        assertThat(archived).filteredOn(occurrence -> LocalDate.of(2000, 1, 5).equals(occurrence.occurrenceDate()))
+                .extracting(ShiftOccurrenceDTO::value).containsExactly(250.0);
+        assertThat(archived).hasSize(10);
+    }
+
+    @Test
+    void archivingAMonthAgainLeavesTheArchiveAsItWas() {
+        assertThat(shiftArchiveService.archive(MONTH)).isTrue();
+        List<ShiftOccurrenceDTO> archived = shiftArchiveService.findHistory(userId, LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2000, 2, 1, 0, 0));
+
+        // the partition is gone, so there is nothing left to drop
+        assertThat(shiftArchiveService.archive(MONTH)).isFalse();
+
+        assertThat(archived).hasSize(10);
+        assertThat(shiftArchiveService.findHistory(userId, LocalDateTime.of(2000, 1, 1, 0, 0), LocalDateTime.of(2000, 2, 1, 0, 0)))
+                .isEqualTo(archived);
+    }
+
+    @Test
+    void theOwnersOfTheMovedShiftsSeeANewVersionAndWhatWasArchived() {
+        String cursor = shiftService.findChanges(userId, null, 50).nextCursor();
+        long version = userRepository.findShiftsVersion(userId).orElseThrow();
+        assertThat(userRepository.findById(userId)).get().extracting(User::getArchivedVersion).isEqualTo(0L);
+
+        assertThat(shiftArchiveService.archive(MONTH)).isTrue();
+
+        assertThat(userRepository.findShiftsVersion(userId)).contains(version + 1);
+        assertThat(userRepository.findById(userId)).get().extracting(User::getArchivedVersion).isEqualTo(version + 1);
+        ShiftChangesResponseDTO changes = shiftService.findChanges(userId, cursor, 50);
+        assertThat(changes.archivedBefore()).isEqualTo(LocalDateTime.of(2000, 2, 1, 0, 0));
+        assertThat(shiftService.findChanges(userId, changes.nextCursor(), 50).archivedBefore()).isNull();
+    }
+
+    @Test
+    void theMovedShiftsAreTakenOutOfTheirLocations() {
+        // the cancelled 3rd was never counted; the other Hospital Sul shift is in a month that stays
+        long upa = insertLocation("UPA", 1, 43200, 250);
+        long hospital = insertLocation("Hospital Sul", 2, 86400, 220);
+        jdbcTemplate.update("update shift set location_id = ? where user_id = ? and location = 'UPA'", upa, userId);
+        jdbcTemplate.update("update shift set location_id = ? where user_id = ? and location = 'Hospital Sul'", hospital, userId);
+
+        assertThat(rollup(upa)).containsExactly(1L, 43200L, 250.0);
+        assertThat(rollup(hospital)).containsExactly(2L, 86400L, 220.0);
+        assertThat(shiftArchiveService.archive(MONTH)).isTrue();
+
+        assertThat(rollup(upa)).containsExactly(0L, 0L, 0.0);
+        assertThat(rollup(hospital)).containsExactly(1L, 43200L, 100.0);
+    }
+
+    private long insertLocation(String name, long shiftCount, long totalSeconds, double totalValue) {
+        return jdbcTemplate.queryForObject("""
+                insert into location (name, normalized_name, last_used_at, shift_count, total_seconds, total_value, user_id)
+                values (?, lower(?), localtimestamp, ?, ?, ?, ?)
+                returning id
+                """, Long.class, name, name, shiftCount, totalSeconds, totalValue, userId);
+    }
+
+    private List<Object> rollup(long locationId) {
+        return jdbcTemplate.queryForObject("select shift_count, total_seconds, total_value from location where id = ?",
+                (rs, row) -> List.of(rs.getLong(1), rs.getLong(2), rs.getDouble(3)), locationId);
+    }
+
+    private void insertShift(LocalDate occurrenceDate, double value, boolean cancelled) {
+        LocalDateTime start = occurrenceDate.atTime(8, 0);
+        jdbcTemplate.update("""
+                insert into shift (id, start_time, end_time, value, location, user_id, template_id, occurrence_date, cancelled, sync_version)
+                values (nextval('shift_seq'), ?, ?, ?, 'UPA', ?, ?, ?, ?, 1)
+                """, start, start.plusHours(12), value, userId, templateId, occurrenceDate, cancelled);
+    }
+}
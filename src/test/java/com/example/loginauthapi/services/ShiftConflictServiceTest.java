@@ -0,0 +1,129 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.shift.ShiftTemplate;
+import com.example.loginauthapi.dto.shift.ShiftOccurrenceDTO;
+import com.example.loginauthapi.infra.persistence.ShiftPartitions;
+import com.example.loginauthapi.repositories.ShiftRepository;
+import com.example.loginauthapi.repositories.ShiftTemplateRepository;
+import com.example.loginauthapi.repositories.TemplateOccurrenceKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShiftConflictServiceTest {
+
+    // a wednesday
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 3, 4, 8, 0);
+    private static final LocalDateTime TO = FROM.plusHours(12);
+
+    private ShiftRepository shiftRepository;
+    private ShiftTemplateRepository shiftTemplateRepository;
+    private ShiftConflictService shiftConflictService;
+
+    @BeforeEach
+    void setUp() {
+        shiftRepository = Mockito.mock(ShiftRepository.class);
+        shiftTemplateRepository = Mockito.mock(ShiftTemplateRepository.class);
+        ShiftPartitions shiftPartitions = Mockito.mock(ShiftPartitions.class);
+        when(shiftPartitions.earliestLive()).thenReturn(LocalDateTime.MIN);
+
+        ShiftTemplateExpander expander = new ShiftTemplateExpander();
+        ReflectionTestUtils.setField(expander, "shiftTemplateRepository", shiftTemplateRepository);
+        ReflectionTestUtils.setField(expander, "shiftRepository", shiftRepository);
+        ReflectionTestUtils.setField(expander, "shiftPartitions", shiftPartitions);
+
+        shiftConflictService = new ShiftConflictService();
+        ReflectionTestUtils.setField(shiftConflictService, "shiftRepository", shiftRepository);
+        ReflectionTestUtils.setField(shiftConflictService, "shiftTemplateExpander", expander);
+    }
+
+    @Test
+    void intervalsThatOnlyTouchDoNotOverlap() {
+        assertThat(ShiftConflictService.overlaps(stored(1, FROM.minusHours(4), FROM), FROM, TO)).isFalse();
+        assertThat(ShiftConflictService.overlaps(stored(2, TO, TO.plusHours(4)), FROM, TO)).isFalse();
+        assertThat(ShiftConflictService.overlaps(stored(3, FROM.minusHours(4), FROM.plusMinutes(1)), FROM, TO)).isTrue();
+        assertThat(ShiftConflictService.overlaps(stored(4, TO.minusMinutes(1), TO.plusHours(4)), FROM, TO)).isTrue();
+    }
+
+    @Test
+    void theScanStartsAtTheLatestShiftStartingAtOrBeforeTheWindow() {
+        LocalDateTime anchor = FROM.minusHours(6);
+        ShiftOccurrenceDTO reachingIn = stored(1, anchor, FROM.plusHours(1));
+        when(shiftRepository.findLatestStartAtOrBefore("u", FROM)).thenReturn(anchor);
+        when(shiftRepository.findOverlapping("u", anchor, FROM, TO)).thenReturn(List.of(reachingIn));
+
+        assertThat(shiftConflictService.findConflicts("u", FROM, TO)).containsExactly(reachingIn);
+    }
+
+    @Test
+    void withoutAnEarlierShiftTheScanStartsAtTheWindow() {
+        shiftConflictService.findConflicts("u", FROM, TO);
+
+        verify(shiftRepository).findOverlapping("u", FROM, FROM, TO);
+    }
+
+    @Test
+    void templateOccurrencesStartingBeforeTheWindowCountWhenTheyReachIntoIt() {
+        // every day at 22:00 for 12 hours, so the tuesday night occurrence runs into wednesday morning
+        ShiftTemplate nights = template(10, 0b1111111, LocalTime.of(22, 0), 12 * 60);
+        when(shiftTemplateRepository.findActive(anyString(), any(), any())).thenReturn(List.of(nights));
+
+        List<ShiftOccurrenceDTO> conflicts = shiftConflictService.findConflicts("u", FROM, TO);
+
+        assertThat(conflicts).extracting(ShiftOccurrenceDTO::occurrenceDate).containsExactly(LocalDate.of(2026, 3, 3));
+        assertThat(conflicts.get(0).id()).isNull();
+    }
+
+    @Test
+    void materializedOccurrencesAreOnlyCheckedAsStoredShifts() {
+        ShiftTemplate days = template(10, 0b1111111, LocalTime.of(9, 0), 8 * 60);
+        when(shiftTemplateRepository.findActive(anyString(), any(), any())).thenReturn(List.of(days));
+        when(shiftRepository.findMaterializedOccurrences(anyCollection(), any(), any()))
+                .thenReturn(List.of(new TemplateOccurrenceKey(10L, LocalDate.of(2026, 3, 4))));
+
+        assertThat(shiftConflictService.findConflicts("u", FROM, TO)).isEmpty();
+    }
+
+    @Test
+    void conflictsAreSortedAndTheIgnoredOnesLeftOut() {
+        ShiftTemplate days = template(10, 0b1111111, LocalTime.of(9, 0), 60);
+        ShiftOccurrenceDTO early = stored(1, FROM, FROM.plusMinutes(30));
+        ShiftOccurrenceDTO late = stored(2, FROM.plusHours(6), FROM.plusHours(7));
+        when(shiftTemplateRepository.findActive(anyString(), any(), any())).thenReturn(List.of(days));
+        when(shiftRepository.findOverlapping("u", FROM, FROM, TO)).thenReturn(List.of(early, late));
+
+        List<ShiftOccurrenceDTO> conflicts = shiftConflictService.findConflicts("u", FROM, TO, occurrence -> Long.valueOf(2).equals(occurrence.id()));
+
+        assertThat(conflicts).extracting(ShiftOccurrenceDTO::startTime).containsExactly(FROM, FROM.plusHours(1));
+    }
+
+    private static ShiftOccurrenceDTO stored(long id, LocalDateTime start, LocalDateTime end) {
+        return new ShiftOccurrenceDTO(id, null, null, start, end, 100, "UPA");
+    }
+
+    private static ShiftTemplate template(long id, int daysOfWeek, LocalTime startTime, int durationMinutes) {
+        ShiftTemplate template = new ShiftTemplate();
+        template.setId(id);
+        template.setDaysOfWeek(daysOfWeek);
+        template.setIntervalWeeks(1);
+        template.setStartTime(startTime);
+        template.setDurationMinutes(durationMinutes);
+        template.setValue(100);
+        template.setLocation("UPA");
+        template.setStartDate(LocalDate.of(2026, 1, 1));
+        return template;
+    }
+}
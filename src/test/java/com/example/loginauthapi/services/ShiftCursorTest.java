@@ -0,0 +1,68 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.dto.shift.ShiftPageResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftResponseDTO;
+import com.example.loginauthapi.repositories.ShiftRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShiftCursorTest {
+
+    @Test
+    void roundTripsThroughItsEncoding() {
+        ShiftCursor cursor = new ShiftCursor(LocalDateTime.of(2026, 3, 1, 7, 30, 15, 123_000_000), 42);
+
+        assertThat(ShiftCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void encodingIsUrlSafe() {
+        String encoded = new ShiftCursor(LocalDateTime.of(2026, 3, 1, 7, 0), Long.MAX_VALUE).encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void rejectsCursorsItDidNotIssue() {
+        assertThatThrownBy(() -> ShiftCursor.decode("not a cursor")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ShiftCursor.decode("MjAyNi0wMy0wMVQwNzowMA")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void aFullPageHandsOutACursorThatResumesAfterItsLastItem() {
+        ShiftRepository shiftRepository = Mockito.mock(ShiftRepository.class);
+        ShiftService shiftService = new ShiftService();
+        ReflectionTestUtils.setField(shiftService, "shiftRepository", shiftRepository);
+        LocalDateTime from = LocalDateTime.of(2026, 3, 1, 0, 0);
+        LocalDateTime to = from.plusMonths(1);
+        LocalDateTime sameStart = from.plusDays(1);
+        // two shifts share a start time, so only the id tells where the first page ended
+        when(shiftRepository.findWindowAfter("u", from, to, from, -1, Limit.of(3)))
+                .thenReturn(List.of(shift(7, sameStart), shift(9, sameStart), shift(11, sameStart)));
+        when(shiftRepository.findWindowAfter("u", from, to, sameStart, 9, Limit.of(3)))
+                .thenReturn(List.of(shift(11, sameStart)));
+
+        ShiftPageResponseDTO first = shiftService.findWindow("u", from, to, null, 2);
+        ShiftPageResponseDTO second = shiftService.findWindow("u", from, to, first.nextCursor(), 2);
+
+        assertThat(first.items()).extracting(ShiftResponseDTO::id).containsExactly(7L, 9L);
+        assertThat(ShiftCursor.decode(first.nextCursor())).isEqualTo(new ShiftCursor(sameStart, 9));
+        assertThat(second.items()).extracting(ShiftResponseDTO::id).containsExactly(11L);
+        assertThat(second.nextCursor()).isNull();
+        verify(shiftRepository).findWindowAfter("u", from, to, sameStart, 9, Limit.of(3));
+    }
+
+    private static ShiftResponseDTO shift(long id, LocalDateTime start) {
+        return new ShiftResponseDTO(id, start, start.plusHours(12), 100, "UPA");
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.dto.shift.ShiftChangeDTO;
+import com.example.loginauthapi.dto.shift.ShiftChangesResponseDTO;
+import com.example.loginauthapi.dto.shift.ShiftTemplateChangeDTO;
+import com.example.loginauthapi.repositories.ShiftRepository;
+import com.example.loginauthapi.repositories.ShiftTemplateRepository;
+import com.example.loginauthapi.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShiftSyncCursorTest {
+
+    private ShiftRepository shiftRepository;
+    private ShiftTemplateRepository shiftTemplateRepository;
+    private ShiftService shiftService;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        shiftRepository = Mockito.mock(ShiftRepository.class);
+        shiftTemplateRepository = Mockito.mock(ShiftTemplateRepository.class);
+        UserRepository userRepository = Mockito.mock(UserRepository.class);
+        shiftService = new ShiftService();
+        ReflectionTestUtils.setField(shiftService, "shiftRepository", shiftRepository);
+        ReflectionTestUtils.setField(shiftService, "shiftTemplateRepository", shiftTemplateRepository);
+        ReflectionTestUtils.setField(shiftService, "userRepository", userRepository);
+
+        owner = new User();
+        owner.setId("u");
+        when(userRepository.findById("u")).thenReturn(Optional.of(owner));
+    }
+
+    @Test
+    void roundTripsThroughItsEncoding() {
+        ShiftSyncCursor cursor = new ShiftSyncCursor(42, Long.MAX_VALUE);
+
+        assertThat(ShiftSyncCursor.decode(cursor.encode())).isEqualTo(cursor);
+        assertThat(ShiftSyncCursor.decode(ShiftSyncCursor.INITIAL.encode())).isEqualTo(ShiftSyncCursor.INITIAL);
+    }
+
+    @Test
+    void rejectsCursorsItDidNotIssue() {
+        assertThatThrownBy(() -> ShiftSyncCursor.decode("not a cursor")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ShiftSyncCursor.decode("NDI")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void theInitialDownloadLeavesTombstonesOutAndLaterPollsIncludeThem() {
+        when(shiftRepository.findChangesAfter("u", -1, -1, false, Limit.of(3))).thenReturn(List.of(change(1, 5, false)));
+        when(shiftRepository.findChangesAfter("u", 5, 1, true, Limit.of(3))).thenReturn(List.of(change(1, 8, true)));
+
+        ShiftChangesResponseDTO initial = shiftService.findChanges("u", null, 2);
+        ShiftChangesResponseDTO next = shiftService.findChanges("u", initial.nextCursor(), 2);
+
+        assertThat(next.changes()).extracting(ShiftChangeDTO::deleted).containsExactly(true);
+        verify(shiftTemplateRepository).findChanges("u", -1, Long.MAX_VALUE, false);
+        verify(shiftTemplateRepository).findChanges("u", 5, Long.MAX_VALUE, true);
+    }
+
+    @Test
+    void aPageThatStopsInsideAVersionResumesAfterItsLastRow() {
+        // one batch wrote three shifts at version 7 and the page only had room for two
+        when(shiftRepository.findChangesAfter("u", 3, 4, true, Limit.of(3)))
+                .thenReturn(List.of(change(5, 7, false), change(6, 7, false), change(9, 7, false)));
+        when(shiftRepository.findChangesAfter("u", 7, 6, true, Limit.of(3))).thenReturn(List.of(change(9, 7, false)));
+
+        ShiftChangesResponseDTO first = shiftService.findChanges("u", new ShiftSyncCursor(3, 4).encode(), 2);
+        ShiftChangesResponseDTO second = shiftService.findChanges("u", first.nextCursor(), 2);
+
+        assertThat(first.hasMore()).isTrue();
+        assertThat(ShiftSyncCursor.decode(first.nextCursor())).isEqualTo(new ShiftSyncCursor(7, 6));
+        assertThat(second.changes()).extracting(ShiftChangeDTO::id).containsExactly(9L);
+        assertThat(second.hasMore()).isFalse();
+        // a page that stops early only carries the template changes up to the version it reached
+        verify(shiftTemplateRepository).findChanges("u", 3, 7, true);
+        verify(shiftTemplateRepository).findChanges("u", 7, Long.MAX_VALUE, true);
+    }
+
+    @Test
+    void aTemplateDeletedAfterTheLastShiftChangeMovesTheCursorPastItself() {
+        String cursor = new ShiftSyncCursor(10, 3).encode();
+        when(shiftTemplateRepository.findChanges("u", 10, Long.MAX_VALUE, true)).thenReturn(List.of(new ShiftTemplateChangeDTO(4, 12, true)));
+
+        ShiftChangesResponseDTO changes = shiftService.findChanges("u", cursor, 50);
+
+        assertThat(changes.changes()).isEmpty();
+        assertThat(changes.templateChanges()).containsExactly(new ShiftTemplateChangeDTO(4, 12, true));
+        assertThat(ShiftSyncCursor.decode(changes.nextCursor())).isEqualTo(new ShiftSyncCursor(12, Long.MAX_VALUE));
+    }
+
+    @Test
+    void anEmptyPollKeepsTheCursor() {
+        String cursor = new ShiftSyncCursor(10, 3).encode();
+        when(shiftTemplateRepository.findChanges(eq("u"), anyLong(), anyLong(), anyBoolean())).thenReturn(List.of());
+
+        assertThat(shiftService.findChanges("u", cursor, 50).nextCursor()).isEqualTo(cursor);
+    }
+
+    @Test
+    void aCursorFromBeforeAnArchiveIsToldWhatWasArchivedOnce() {
+        LocalDateTime archivedBefore = LocalDateTime.of(2024, 2, 1, 0, 0);
+        owner.setArchivedVersion(15);
+        owner.setArchivedBefore(archivedBefore);
+        when(shiftRepository.findChangesAfter("u", 10, 3, true, Limit.of(51))).thenReturn(List.of(change(7, 12, false)));
+
+        ShiftChangesResponseDTO changes = shiftService.findChanges("u", new ShiftSyncCursor(10, 3).encode(), 50);
+        ShiftChangesResponseDTO next = shiftService.findChanges("u", changes.nextCursor(), 50);
+
+        assertThat(changes.archivedBefore()).isEqualTo(archivedBefore);
+        assertThat(ShiftSyncCursor.decode(changes.nextCursor())).isEqualTo(new ShiftSyncCursor(15, Long.MAX_VALUE));
+        assertThat(next.archivedBefore()).isNull();
+        // the initial download never had the archived shifts
+        assertThat(shiftService.findChanges("u", null, 50).archivedBefore()).isNull();
+    }
+
+    private static ShiftChangeDTO change(long id, long version, boolean deleted) {
+        LocalDateTime start = LocalDateTime.of(2026, 3, 1, 7, 0);
+        return new ShiftChangeDTO(id, version, deleted, start, start, start.plusHours(12), 100, "UPA");
+    }
+}
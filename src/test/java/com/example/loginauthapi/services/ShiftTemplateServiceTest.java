@@ -0,0 +1,172 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.shift.ShiftTemplate;
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.dto.shift.ShiftOccurrenceDTO;
+import com.example.loginauthapi.dto.shift.ShiftTemplateRequestDTO;
+import com.example.loginauthapi.infra.persistence.ShiftPartitions;
+import com.example.loginauthapi.repositories.ShiftRepository;
+import com.example.loginauthapi.repositories.ShiftTemplateRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShiftTemplateServiceTest {
+
+    private ShiftRepository shiftRepository;
+    private ShiftTemplateRepository shiftTemplateRepository;
+    private ShiftService shiftService;
+    private ShiftTemplateService shiftTemplateService;
+    private User owner;
+
+    @BeforeEach
+    void setUp() {
+        shiftRepository = Mockito.mock(ShiftRepository.class);
+        shiftTemplateRepository = Mockito.mock(ShiftTemplateRepository.class);
+        shiftService = Mockito.mock(ShiftService.class);
+        shiftTemplateService = new ShiftTemplateService();
+        ReflectionTestUtils.setField(shiftTemplateService, "shiftRepository", shiftRepository);
+        ReflectionTestUtils.setField(shiftTemplateService, "shiftTemplateRepository", shiftTemplateRepository);
+        ReflectionTestUtils.setField(shiftTemplateService, "shiftService", shiftService);
+
+        // the real conflict check, over the same mocked repositories
+        ShiftPartitions shiftPartitions = Mockito.mock(ShiftPartitions.class);
+        when(shiftPartitions.earliestLive()).thenReturn(LocalDateTime.MIN);
+        ShiftTemplateExpander expander = new ShiftTemplateExpander();
+        ReflectionTestUtils.setField(expander, "shiftTemplateRepository", shiftTemplateRepository);
+        ReflectionTestUtils.setField(expander, "shiftRepository", shiftRepository);
+        ReflectionTestUtils.setField(expander, "shiftPartitions", shiftPartitions);
+        ShiftConflictService shiftConflictService = new ShiftConflictService();
+        ReflectionTestUtils.setField(shiftConflictService, "shiftRepository", shiftRepository);
+        ReflectionTestUtils.setField(shiftConflictService, "shiftTemplateExpander", expander);
+        ReflectionTestUtils.setField(shiftTemplateService, "shiftConflictService", shiftConflictService);
+        when(shiftTemplateRepository.save(any())).thenAnswer(returnsFirstArg());
+
+        owner = new User();
+        owner.setId("u");
+        // the version lockOwner handed out for this write
+        owner.setShiftsVersion(16);
+        when(shiftService.lockOwner("u")).thenReturn(owner);
+    }
+
+    @Test
+    void deletingATemplateStampsTheDetachedShiftsAndLeavesATombstone() {
+        ShiftTemplate template = template(4);
+        when(shiftTemplateRepository.findByIdAndDeletedFalse(4)).thenReturn(Optional.of(template));
+
+        shiftTemplateService.delete("u", 4);
+
+        verify(shiftRepository).detachFromTemplate(4L, 16);
+        assertThat(template.isDeleted()).isTrue();
+        assertThat(template.getSyncVersion()).isEqualTo(16);
+        verify(shiftTemplateRepository, never()).delete(any());
+    }
+
+    @Test
+    void aDeletedTemplateIsGone() {
+        when(shiftTemplateRepository.findByIdAndDeletedFalse(4)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> shiftTemplateService.delete("u", 4)).isInstanceOf(ResponseStatusException.class);
+        verify(shiftRepository, never()).detachFromTemplate(any(), Mockito.anyLong());
+    }
+
+    @Test
+    void aTemplateThatRunsIntoAStoredShiftIsRejected() {
+        LocalDateTime monday = nextMonday().atTime(10, 0);
+        when(shiftRepository.findOverlapping(anyString(), any(), any(), any()))
+                .thenReturn(List.of(new ShiftOccurrenceDTO(7L, null, null, monday, monday.plusHours(4), 100, "UPA")));
+
+        assertThatThrownBy(() -> shiftTemplateService.create("u", mondays(LocalTime.of(8, 0), 8 * 60)))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        verify(shiftTemplateRepository, never()).save(any());
+    }
+
+    @Test
+    void aTemplateThatFitsBetweenTheStoredShiftsIsCreated() {
+        LocalDateTime monday = nextMonday().atTime(10, 0);
+        when(shiftRepository.findOverlapping(anyString(), any(), any(), any()))
+                .thenReturn(List.of(new ShiftOccurrenceDTO(7L, null, null, monday, monday.plusHours(4), 100, "UPA")));
+
+        shiftTemplateService.create("u", mondays(LocalTime.of(14, 0), 8 * 60));
+
+        verify(shiftTemplateRepository).save(any());
+    }
+
+    @Test
+    void aTemplateWhoseOccurrencesOverlapEachOtherIsRejected() {
+        ShiftTemplateRequestDTO daily = new ShiftTemplateRequestDTO(Set.of(DayOfWeek.values()), 1, LocalTime.of(8, 0), 30 * 60, 100, "UPA",
+                LocalDate.now().plusDays(1), null);
+
+        assertThatThrownBy(() -> shiftTemplateService.create("u", daily)).isInstanceOf(ResponseStatusException.class);
+    }
+
+    @Test
+    void anUpdateIsNotAConflictWithTheOccurrencesItReplaces() {
+        ShiftTemplate template = template(4);
+        when(shiftTemplateRepository.findByIdAndDeletedFalse(4)).thenReturn(Optional.of(template));
+        when(shiftTemplateRepository.findActive(anyString(), any(), any())).thenReturn(List.of(template));
+
+        shiftTemplateService.update("u", 4, mondays(LocalTime.of(9, 0), 8 * 60));
+
+        assertThat(template.getStartTime()).isEqualTo(LocalTime.of(9, 0));
+    }
+
+    @Test
+    void anUpdateThatRunsIntoAnotherTemplateIsRejected() {
+        ShiftTemplate template = template(4);
+        ShiftTemplate other = template(5);
+        other.setStartTime(LocalTime.of(18, 0));
+        when(shiftTemplateRepository.findByIdAndDeletedFalse(4)).thenReturn(Optional.of(template));
+        when(shiftTemplateRepository.findActive(anyString(), any(), any())).thenReturn(List.of(template, other));
+
+        assertThatThrownBy(() -> shiftTemplateService.update("u", 4, mondays(LocalTime.of(12, 0), 8 * 60)))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(template.getStartTime()).isEqualTo(LocalTime.of(8, 0));
+    }
+
+    private static ShiftTemplateRequestDTO mondays(LocalTime startTime, int durationMinutes) {
+        return new ShiftTemplateRequestDTO(Set.of(DayOfWeek.MONDAY), 1, startTime, durationMinutes, 100, "UPA", nextMonday(), null);
+    }
+
+    private static LocalDate nextMonday() {
+        LocalDate date = LocalDate.now().plusDays(1);
+        while (date.getDayOfWeek() != DayOfWeek.MONDAY) date = date.plusDays(1);
+        return date;
+    }
+
+    private ShiftTemplate template(long id) {
+        ShiftTemplate template = new ShiftTemplate();
+        template.setId(id);
+        template.setUser(owner);
+        template.setSyncVersion(3);
+        // mondays from 08:00 to 16:00
+        template.setDaysOfWeek(1);
+        template.setIntervalWeeks(1);
+        template.setStartTime(LocalTime.of(8, 0));
+        template.setDurationMinutes(8 * 60);
+        template.setValue(100);
+        template.setLocation("UPA");
+        template.setStartDate(nextMonday());
+        return template;
+    }
+}
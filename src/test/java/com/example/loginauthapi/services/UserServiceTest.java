@@ -0,0 +1,77 @@
+package com.example.loginauthapi.services;
+
+import com.example.loginauthapi.domain.user.User;
+import com.example.loginauthapi.domain.user.UserCredentials;
+import com.example.loginauthapi.repositories.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceTest {
+
+    private UserRepository userRepository;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = Mockito.mock(UserRepository.class);
+        userService = new UserService();
+        ReflectionTestUtils.setField(userService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userService, "cacheMaxSize", 100);
+        ReflectionTestUtils.setField(userService, "cacheTtl", Duration.ofSeconds(30));
+        ReflectionTestUtils.invokeMethod(userService, "init");
+    }
+
+    @Test
+    void missesAreNotCachedSoAUserRegisteredElsewhereIsFoundNextTime() {
+        when(userRepository.findByNormalizedEmail("ana@example.com"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(user("id-1", "Ana@Example.com")));
+
+        assertThat(userService.findByEmail("ana@example.com")).isEmpty();
+        assertThat(userService.findByEmail("ana@example.com")).map(UserCredentials::id).contains("id-1");
+        verify(userRepository, times(2)).findByNormalizedEmail("ana@example.com");
+    }
+
+    @Test
+    void hitsAreServedAsImmutableCredentialsUnderTheNormalizedEmail() {
+        when(userRepository.findByNormalizedEmail("ana@example.com")).thenReturn(Optional.of(user("id-1", "Ana@Example.com")));
+
+        UserCredentials first = userService.findByEmail(" ANA@example.com").orElseThrow();
+        UserCredentials second = userService.findByEmail("ana@example.com").orElseThrow();
+
+        assertThat(second).isSameAs(first);
+        assertThat(first).isEqualTo(new UserCredentials("id-1", "Ana@Example.com", "Ana", "hash"));
+        verify(userRepository, times(1)).findByNormalizedEmail("ana@example.com");
+    }
+
+    @Test
+    void passwordChangeDropsTheCachedCredentials() {
+        when(userRepository.findByNormalizedEmail("ana@example.com")).thenReturn(Optional.of(user("id-1", "Ana@Example.com")));
+        UserCredentials cached = userService.findByEmail("ana@example.com").orElseThrow();
+
+        userService.updatePassword(cached, "new-hash");
+        userService.findByEmail("ana@example.com");
+
+        verify(userRepository).updatePassword("id-1", "new-hash");
+        verify(userRepository, times(2)).findByNormalizedEmail("ana@example.com");
+    }
+
+    static User user(String id, String email) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setName("Ana");
+        user.setPassword("hash");
+        return user;
+    }
+}